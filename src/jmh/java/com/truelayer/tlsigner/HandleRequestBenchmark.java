@@ -0,0 +1,117 @@
+package com.truelayer.tlsigner;
+
+import com.truelayer.signing.Signer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline for the work TlSigner.handleRequest does per request, without the Montoya request rebuild.
+ *
+ * Run with: ./gradlew jmh
+ * Throughput gives ops/sec, SampleTime gives the p99 latency, and the gc profiler reports allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandleRequestBenchmark
+{
+    private static final String KID = "45fc75cf-5649-4134-84b3-192c2c78e990";
+
+    @Param({"0", "1024", "65536", "1048576", "10485760"})
+    public int bodySize;
+
+    private ECPrivateKey ecPrivateKey;
+    private SigningContext signingContext;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp521r1"));
+        ecPrivateKey = (ECPrivateKey) generator.generateKeyPair().getPrivate();
+        signingContext = SigningContext.create(KID, ecPrivateKey);
+
+        // printable ASCII so the UTF-8 decode below behaves like a typical JSON payload
+        body = new byte[bodySize];
+        Random random = new Random(42);
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (0x20 + random.nextInt(0x5f));
+        }
+    }
+
+    /**
+     * Mirrors the original handleRequest: body copy, UTF-8 decode, fresh Signer, random Idempotency-Key, sign.
+     */
+    @Benchmark
+    public String signRequest() {
+        byte[] bodyBytes = body.clone();
+        String bodyString = bodyBytes.length > 0 ? new String(bodyBytes, StandardCharsets.UTF_8) : "";
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        return Signer.from(KID, ecPrivateKey)
+                .header("Idempotency-Key", idempotencyKey)
+                .method("POST")
+                .path("/v3/payments")
+                .body(bodyString)
+                .sign();
+    }
+
+    /**
+     * Mirrors the current handleRequest: the body bytes are copied once and signed without a String round-trip.
+     */
+    @Benchmark
+    public String signRequestRawBody() {
+        byte[] bodyBytes = body.clone();
+        String idempotencyKey = IdempotencyKeys.next();
+
+        return Signer.from(KID, ecPrivateKey)
+                .header("Idempotency-Key", idempotencyKey)
+                .method("POST")
+                .path("/v3/payments")
+                .body(bodyBytes)
+                .sign();
+    }
+
+    /**
+     * The built-in engine: cached protected header, per-thread Signature, signing input streamed from the body bytes.
+     */
+    @Benchmark
+    public String signRequestBuiltIn() throws Exception {
+        byte[] bodyBytes = body.clone();
+        return signingContext.sign("POST", "/v3/payments",
+                new String[] {"Idempotency-Key"}, new String[] {IdempotencyKeys.next()}, bodyBytes);
+    }
+
+    @Benchmark
+    public void idempotencyKey(Blackhole bh) {
+        bh.consume(UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void idempotencyKeyContended(Blackhole bh) {
+        bh.consume(UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void idempotencyKeyPerThreadContended(Blackhole bh) {
+        bh.consume(IdempotencyKeys.next());
+    }
+
+    @Benchmark
+    public void decodeBody(Blackhole bh) {
+        bh.consume(new String(body.clone(), StandardCharsets.UTF_8));
+    }
+}
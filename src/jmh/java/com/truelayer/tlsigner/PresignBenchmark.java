@@ -0,0 +1,72 @@
+package com.truelayer.tlsigner;
+
+import com.truelayer.signing.Signer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-path cost of presigned ES512 signing against Signer.sign() and the built-in engine.
+ *
+ * The presignature for each invocation is computed in an invocation-level setup, so presignedSign measures only what
+ * handleRequest pays when the background pool is keeping up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresignBenchmark
+{
+    private static final String KID = "45fc75cf-5649-4134-84b3-192c2c78e990";
+    private static final String[] HEADER_NAMES = {"Idempotency-Key"};
+    private static final String[] HEADER_VALUES = {"5b2c0a8e-3c1d-4f6e-9a7b-8c9d0e1f2a3b"};
+
+    private ECPrivateKey ecPrivateKey;
+    private PresigningEcdsa presigner;
+    private PresigningEcdsa.Presignature presignature;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp521r1"));
+        ecPrivateKey = (ECPrivateKey) generator.generateKeyPair().getPrivate();
+        presigner = new PresigningEcdsa(SigningContext.create(KID, ecPrivateKey), 1);
+        body = "{\"amount_in_minor\":100,\"currency\":\"GBP\"}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextPresignature() {
+        presignature = presigner.precompute();
+    }
+
+    @Benchmark
+    public String librarySign() {
+        return Signer.from(KID, ecPrivateKey)
+                .header(HEADER_NAMES[0], HEADER_VALUES[0])
+                .method("POST")
+                .path("/v3/payments")
+                .body(body)
+                .sign();
+    }
+
+    @Benchmark
+    public String builtInSign() throws Exception {
+        return presigner.context().sign("POST", "/v3/payments", HEADER_NAMES, HEADER_VALUES, body);
+    }
+
+    @Benchmark
+    public String presignedSign() throws Exception {
+        SigningContext.EncodedHeader header = presigner.context().encodedHeader(HEADER_NAMES);
+        MessageDigest digest = MessageDigest.getInstance("SHA-512");
+        DetachedJws.writeSigningInput(header.bytes(), "POST", "/v3/payments", HEADER_NAMES, HEADER_VALUES, body, digest::update);
+        return DetachedJws.assemble(header.value(), presigner.sign(digest.digest(), presignature));
+    }
+}
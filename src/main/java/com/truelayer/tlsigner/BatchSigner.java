@@ -0,0 +1,351 @@
+package com.truelayer.tlsigner;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless batch signer: reads a stream of requests, adds Idempotency-Key and Tl-Signature exactly as the Burp
+ * extension would, and writes them back out in the same order.
+ *
+ * <pre>
+ * java -cp truelayer-signing.jar com.truelayer.tlsigner.BatchSigner \
+ *     --kid KID --key private.pem [--format jsonl|har] [--in FILE] [--out FILE] [--threads N] \
+ *     [--sign-header NAME]... [--preserve-idempotency-key]
+ * </pre>
+ *
+ * JSONL input has one request per line: {"method":"POST","url":"https://...","headers":{...},"body":"..."}; "path"
+ * may be given instead of "url", headers may also be a HAR-style [{"name":..,"value":..}] list, and "bodyBase64"
+ * may replace "body" for binary payloads. HAR input is a normal HAR 1.2 document; each entry's request is signed and
+ * everything else is copied through.
+ *
+ * Input is read incrementally (a line or a HAR entry at a time). Requests are signed in parallel on a work-stealing
+ * ForkJoinPool, with a bounded window of in-flight requests so memory stays flat on million-request corpora, and
+ * results are written strictly in input order.
+ */
+public final class BatchSigner
+{
+    private static final int IN_FLIGHT_PER_THREAD = 64;
+
+    private final SigningContext context;
+    private final RequestSigner signer;
+    private final ForkJoinPool pool;
+    private final int window;
+    private final LongAdder signed = new LongAdder();
+
+    BatchSigner(SigningContext context, RequestSigner signer, int threads) {
+        this.context = context;
+        this.signer = signer;
+        this.pool = new ForkJoinPool(threads);
+        this.window = threads * IN_FLIGHT_PER_THREAD;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String kid = null, keyFile = null, format = null, in = null, out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> signHeaders = new ArrayList<>();
+        boolean preserveIdempotencyKey = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--kid" -> kid = argument(args, ++i);
+                case "--key" -> keyFile = argument(args, ++i);
+                case "--format" -> format = argument(args, ++i).toLowerCase(Locale.ROOT);
+                case "--in" -> in = argument(args, ++i);
+                case "--out" -> out = argument(args, ++i);
+                case "--threads" -> threads = Integer.parseInt(argument(args, ++i));
+                case "--sign-header" -> signHeaders.add(argument(args, ++i));
+                case "--preserve-idempotency-key" -> preserveIdempotencyKey = true;
+                default -> usage("unknown option " + args[i]);
+            }
+        }
+        if (kid == null || keyFile == null) {
+            usage("--kid and --key are required");
+        }
+        if (format == null) {
+            format = in != null && in.toLowerCase(Locale.ROOT).endsWith(".har") ? "har" : "jsonl";
+        }
+
+        String pem = Files.readString(Path.of(keyFile), StandardCharsets.UTF_8);
+        SigningContext context = SigningContext.create(kid, PemKeys.loadEcPrivateKey(pem));
+        RequestSigner signer = new RequestSigner(SignedHeaders.parse(String.join(",", signHeaders)), preserveIdempotencyKey, false);
+        BatchSigner batch = new BatchSigner(context, signer, threads);
+
+        long start = System.nanoTime();
+        try (Reader reader = in != null ? Files.newBufferedReader(Path.of(in), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16);
+             Writer writer = out != null ? Files.newBufferedWriter(Path.of(out), StandardCharsets.UTF_8)
+                     : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            switch (format) {
+                case "jsonl" -> batch.signJsonLines(new BufferedReader(reader), writer);
+                case "har" -> batch.signHar(reader, writer);
+                default -> usage("unknown format " + format);
+            }
+        } finally {
+            batch.pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Signed %,d requests in %.1fs (%,.0f req/s)%n", batch.signed.sum(), seconds, batch.signed.sum() / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * Sign one JSON request object per line. Blank lines are skipped.
+     */
+    void signJsonLines(BufferedReader reader, Writer writer) throws IOException {
+        Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            String text = line;
+            long number = lineNumber;
+            inFlight.add(CompletableFuture.supplyAsync(() -> signJsonLine(text, number), pool));
+            if (inFlight.size() >= window) {
+                writeLine(writer, inFlight.poll());
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            writeLine(writer, inFlight.poll());
+        }
+    }
+
+    /**
+     * Sign every entry of a HAR document, streaming entries through while copying all other members unchanged.
+     */
+    void signHar(Reader reader, Writer writer) throws IOException {
+        Json.Parser parser = new Json.Parser(reader);
+        parser.beginObject();
+        writer.write('{');
+        boolean firstMember = true;
+        while (parser.hasNext()) {
+            String name = parser.nextName();
+            firstMember = writeName(writer, name, firstMember);
+            if (!name.equals("log")) {
+                writer.write(Json.write(parser.readValue()));
+                continue;
+            }
+            parser.beginObject();
+            writer.write('{');
+            boolean firstLogMember = true;
+            while (parser.hasNext()) {
+                String logName = parser.nextName();
+                firstLogMember = writeName(writer, logName, firstLogMember);
+                if (logName.equals("entries")) {
+                    signHarEntries(parser, writer);
+                } else {
+                    writer.write(Json.write(parser.readValue()));
+                }
+            }
+            parser.endObject();
+            writer.write('}');
+        }
+        parser.endObject();
+        writer.write("}\n");
+    }
+
+    private void signHarEntries(Json.Parser parser, Writer writer) throws IOException {
+        Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+        parser.beginArray();
+        writer.write('[');
+        boolean first = true;
+        long index = 0;
+        while (parser.hasNext()) {
+            Object entry = parser.readValue();
+            long number = index++;
+            inFlight.add(CompletableFuture.supplyAsync(() -> signHarEntry(entry, number), pool));
+            if (inFlight.size() >= window) {
+                first = writeElement(writer, inFlight.poll(), first);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            first = writeElement(writer, inFlight.poll(), first);
+        }
+        parser.endArray();
+        writer.write(']');
+    }
+
+    private String signJsonLine(String line, long lineNumber) {
+        try {
+            if (!(Json.parse(line) instanceof Map<?, ?> parsed)) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> request = (Map<String, Object>) parsed;
+            byte[] body;
+            if (request.get("bodyBase64") instanceof String encoded) {
+                body = Base64.getDecoder().decode(encoded);
+            } else {
+                body = request.get("body") instanceof String text ? text.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            }
+            String target = request.get("path") instanceof String path ? path : pathOf(stringOrThrow(request, "url"));
+            Object headers = request.get("headers");
+            request.put("headers", sign(stringOrThrow(request, "method"), target, headers, body, false));
+            return Json.write(request);
+        } catch (Exception e) {
+            throw new CompletionException(new IOException("line " + lineNumber + ": " + e.getMessage(), e));
+        }
+    }
+
+    private String signHarEntry(Object entryValue, long index) {
+        try {
+            if (!(entryValue instanceof Map<?, ?> entry) || !(entry.get("request") instanceof Map<?, ?> requestValue)) {
+                throw new IllegalArgumentException("entry has no request object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> request = (Map<String, Object>) requestValue;
+            byte[] body = new byte[0];
+            if (request.get("postData") instanceof Map<?, ?> postData && postData.get("text") instanceof String text) {
+                body = "base64".equals(postData.get("encoding")) ? Base64.getDecoder().decode(text) : text.getBytes(StandardCharsets.UTF_8);
+            }
+            String target = pathOf(stringOrThrow(request, "url"));
+            request.put("headers", sign(stringOrThrow(request, "method"), target, request.get("headers"), body, true));
+            return Json.write(entryValue);
+        } catch (Exception e) {
+            throw new CompletionException(new IOException("HAR entry " + index + ": " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Sign a request and return its headers (in their original shape) with Idempotency-Key and Tl-Signature set.
+     */
+    private Object sign(String method, String path, Object headers, byte[] body, boolean harStyle) throws Exception {
+        Map<String, String> index = new HashMap<>();
+        forEachHeader(headers, (name, value) -> index.putIfAbsent(name.toLowerCase(Locale.ROOT), value));
+
+        String[] extraValues = signer.signedHeaders().valuesFrom(index);
+        String existingKey = index.get(RequestSigner.IDEMPOTENCY_KEY.toLowerCase(Locale.ROOT));
+        RequestSigner.Signed result = signer.sign(context, null, method, path, existingKey, extraValues, body);
+        signed.increment();
+
+        Object updated = headers != null ? headers : harStyle ? new ArrayList<>() : new LinkedHashMap<String, Object>();
+        setHeader(updated, RequestSigner.IDEMPOTENCY_KEY, result.idempotencyKey());
+        setHeader(updated, RequestSigner.TL_SIGNATURE, result.tlSignature());
+        return updated;
+    }
+
+    private interface HeaderConsumer
+    {
+        void accept(String name, String value);
+    }
+
+    private static void forEachHeader(Object headers, HeaderConsumer consumer) {
+        if (headers instanceof Map<?, ?> map) {
+            map.forEach((name, value) -> consumer.accept(String.valueOf(name), value == null ? "" : String.valueOf(value)));
+        } else if (headers instanceof List<?> list) {
+            for (Object item : list) {
+                if (item instanceof Map<?, ?> header && header.get("name") != null) {
+                    Object value = header.get("value");
+                    consumer.accept(String.valueOf(header.get("name")), value == null ? "" : String.valueOf(value));
+                }
+            }
+        } else if (headers != null) {
+            throw new IllegalArgumentException("headers must be an object or a list");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setHeader(Object headers, String name, String value) {
+        if (headers instanceof Map<?, ?> map) {
+            map.keySet().removeIf(key -> String.valueOf(key).equalsIgnoreCase(name));
+            ((Map<String, Object>) map).put(name, value);
+        } else {
+            List<Object> list = (List<Object>) headers;
+            for (Iterator<Object> it = list.iterator(); it.hasNext(); ) {
+                if (it.next() instanceof Map<?, ?> header && name.equalsIgnoreCase(String.valueOf(header.get("name")))) {
+                    it.remove();
+                }
+            }
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("name", name);
+            header.put("value", value);
+            list.add(header);
+        }
+    }
+
+    /**
+     * Path and query of a URL, as Burp's HttpRequest.path() reports them.
+     */
+    static String pathOf(String url) {
+        URI uri = URI.create(url);
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) path = "/";
+        return uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path;
+    }
+
+    private static String stringOrThrow(Map<String, Object> request, String field) {
+        if (request.get(field) instanceof String value) {
+            return value;
+        }
+        throw new IllegalArgumentException("missing \"" + field + "\"");
+    }
+
+    private static void writeLine(Writer writer, CompletableFuture<String> result) throws IOException {
+        writer.write(await(result));
+        writer.write('\n');
+    }
+
+    private static boolean writeElement(Writer writer, CompletableFuture<String> result, boolean first) throws IOException {
+        if (!first) writer.write(',');
+        writer.write(await(result));
+        return false;
+    }
+
+    private static boolean writeName(Writer writer, String name, boolean first) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (!first) sb.append(',');
+        Json.writeString(sb, name);
+        sb.append(':');
+        writer.write(sb.toString());
+        return false;
+    }
+
+    private static String await(CompletableFuture<String> result) throws IOException {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String argument(String[] args, int i) {
+        if (i >= args.length) {
+            usage("missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static void usage(String problem) {
+        System.err.println("BatchSigner: " + problem);
+        System.err.println("usage: BatchSigner --kid KID --key PEM_FILE [--format jsonl|har] [--in FILE] [--out FILE] "
+                + "[--threads N] [--sign-header NAME]... [--preserve-idempotency-key]");
+        System.exit(2);
+    }
+}
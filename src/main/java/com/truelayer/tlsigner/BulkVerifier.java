@@ -0,0 +1,147 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.message.HttpHeader;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * One run of Tl-Signature verification over a list of requests, e.g. the whole Proxy history.
+ *
+ * Worker threads claim items one index at a time and fetch each request only when they get to it, so bodies are read
+ * and dropped one by one and never all held at once. Progress counters can be read from any thread while the run is
+ * going; {@link #cancel()} makes the workers stop after their current item.
+ */
+final class BulkVerifier
+{
+    // Mismatches kept for the report; any beyond this are only counted
+    static final int MAX_REPORTED = 10_000;
+
+    record Mismatch(int item, String url, String message)
+    {
+    }
+
+    private final int size;
+    private final IntFunction<HttpRequest> items;
+    private final SignatureVerifier verifier;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger signed = new AtomicInteger();
+    private final AtomicInteger mismatches = new AtomicInteger();
+    private final Queue<Mismatch> reported = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private volatile boolean cancelled;
+
+    BulkVerifier(int size, IntFunction<HttpRequest> items, SignatureVerifier verifier) {
+        this.size = size;
+        this.items = items;
+        this.verifier = verifier;
+    }
+
+    /**
+     * Start the run on {@code threads} daemon threads; {@code onFinished} runs on the last worker to finish.
+     */
+    void start(int threads, Runnable onFinished) {
+        int workers = Math.max(1, Math.min(threads, size));
+        runningWorkers.set(workers);
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    work();
+                } finally {
+                    if (runningWorkers.decrementAndGet() == 0) {
+                        onFinished.run();
+                    }
+                }
+            }, "tl-signer-bulk-verify-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int processed() {
+        return processed.get();
+    }
+
+    int signed() {
+        return signed.get();
+    }
+
+    int mismatches() {
+        return mismatches.get();
+    }
+
+    /**
+     * Reported mismatches in item order.
+     */
+    List<Mismatch> reported() {
+        List<Mismatch> list = new ArrayList<>(reported);
+        list.sort((a, b) -> Integer.compare(a.item, b.item));
+        return list;
+    }
+
+    private void work() {
+        int i;
+        while (!cancelled && (i = next.getAndIncrement()) < size) {
+            try {
+                check(i, items.apply(i));
+            } catch (RuntimeException e) {
+                mismatch(i, null, "could not read request: " + e.getMessage());
+            }
+            processed.incrementAndGet();
+        }
+    }
+
+    private void check(int i, HttpRequest request) {
+        if (request == null) {
+            return;
+        }
+        String tlSignature = request.headerValue(RequestSigner.TL_SIGNATURE);
+        if (tlSignature == null) {
+            return;
+        }
+        signed.incrementAndGet();
+
+        List<HttpHeader> headers = request.headers();
+        Map<String, String> index = new HashMap<>(headers.size() * 2);
+        for (HttpHeader header : headers) {
+            index.putIfAbsent(header.name().toLowerCase(Locale.ROOT), header.value());
+        }
+        ByteArray body = request.body();
+        byte[] bodyBytes = body != null && body.length() > 0 ? body.getBytes() : new byte[0];
+        String path = request.path();
+        if (path == null || path.isEmpty()) path = "/";
+
+        SignatureVerifier.Result result = verifier.verify(tlSignature, request.method(), path, index, bodyBytes);
+        if (!result.valid()) {
+            mismatch(i, request.url(), result.message());
+        }
+    }
+
+    private void mismatch(int i, String url, String message) {
+        if (mismatches.incrementAndGet() <= MAX_REPORTED) {
+            reported.add(new Mismatch(i, url, message));
+        }
+    }
+}
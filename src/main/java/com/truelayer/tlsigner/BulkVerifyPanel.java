@@ -0,0 +1,177 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.proxy.ProxyHttpRequestResponse;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link BulkVerifier} over Proxy history or a context-menu selection and shows progress and mismatches.
+ * Only one run at a time; starting another while one is going is refused. Fetching the items and building the
+ * verifier (which waits for keys and derives public keys) happen on a background thread, never on the EDT.
+ */
+final class BulkVerifyPanel extends JPanel
+{
+    private static final int REFRESH_MILLIS = 250;
+
+    /**
+     * The requests to check, fetched lazily by index.
+     */
+    record Items(int size, IntFunction<HttpRequest> requests)
+    {
+    }
+
+    private final Supplier<SignatureVerifier> verifiers;
+    private final JButton historyBtn = new JButton("Verify Proxy history");
+    private final JButton cancelBtn = new JButton("Cancel");
+    private final JProgressBar progress = new JProgressBar();
+    private final JLabel summary = new JLabel(" ");
+    private final JTextArea results = new JTextArea(8, 60);
+    private final Timer timer;
+    private BulkVerifier current;
+    private String currentLabel;
+    // set from the click until the run finishes, including while it is being prepared
+    private boolean busy;
+
+    /**
+     * @param verifiers builds a verifier for the keys configured at the time a run starts, or returns null if none are
+     */
+    BulkVerifyPanel(Supplier<SignatureVerifier> verifiers, Supplier<List<ProxyHttpRequestResponse>> history) {
+        super(new BorderLayout());
+        this.verifiers = verifiers;
+        setBorder(BorderFactory.createTitledBorder("Verify signatures in bulk"));
+
+        progress.setStringPainted(true);
+        cancelBtn.setEnabled(false);
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(historyBtn);
+        controls.add(cancelBtn);
+        controls.add(progress);
+        controls.add(summary);
+        add(controls, BorderLayout.NORTH);
+
+        results.setEditable(false);
+        results.setFont(new Font(Font.MONOSPACED, Font.PLAIN, results.getFont().getSize()));
+        add(new JScrollPane(results), BorderLayout.CENTER);
+
+        historyBtn.addActionListener(e -> start("Proxy history", () -> {
+            List<ProxyHttpRequestResponse> items = history.get();
+            return new Items(items.size(), i -> items.get(i).finalRequest());
+        }, false));
+        cancelBtn.addActionListener(e -> {
+            if (current != null) {
+                current.cancel();
+            }
+        });
+        timer = new Timer(REFRESH_MILLIS, e -> refresh());
+    }
+
+    /**
+     * Verify every signed request among the items. Must be called on the EDT; {@code items} is called on a background
+     * thread.
+     *
+     * @param notify show a dialog when the run finishes, for runs started from outside this tab
+     */
+    void start(String label, Supplier<Items> items, boolean notify) {
+        if (busy) {
+            JOptionPane.showMessageDialog(this, "A bulk verification is already running.", "Busy", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        busy = true;
+        historyBtn.setEnabled(false);
+        summary.setText(label + ": preparing...");
+        Thread prepare = new Thread(() -> {
+            SignatureVerifier verifier = null;
+            Items fetched = null;
+            String problem = null;
+            try {
+                verifier = verifiers.get();
+                if (verifier != null) {
+                    fetched = items.get();
+                }
+            } catch (RuntimeException e) {
+                problem = e.getMessage();
+            }
+            SignatureVerifier ready = verifier;
+            Items toCheck = fetched;
+            String error = problem;
+            SwingUtilities.invokeLater(() -> begin(label, toCheck, ready, error, notify));
+        }, "tl-signer-bulk-prepare");
+        prepare.setDaemon(true);
+        prepare.start();
+    }
+
+    private void begin(String label, Items items, SignatureVerifier verifier, String problem, boolean notify) {
+        if (verifier == null || items == null) {
+            busy = false;
+            historyBtn.setEnabled(true);
+            summary.setText(" ");
+            if (problem != null) {
+                JOptionPane.showMessageDialog(this, "Can't start verification: " + problem, "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, "Configure a signing key or a verification JWKS first.", "No keys", JOptionPane.INFORMATION_MESSAGE);
+            }
+            return;
+        }
+        int size = items.size();
+        BulkVerifier run = new BulkVerifier(size, items.requests(), verifier);
+        current = run;
+        currentLabel = label;
+        cancelBtn.setEnabled(true);
+        progress.setMaximum(Math.max(size, 1));
+        results.setText("");
+        timer.start();
+        refresh();
+        run.start(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                () -> SwingUtilities.invokeLater(() -> finished(run, notify)));
+    }
+
+    void stop() {
+        timer.stop();
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private void finished(BulkVerifier run, boolean notify) {
+        timer.stop();
+        current = null;
+        busy = false;
+        historyBtn.setEnabled(true);
+        cancelBtn.setEnabled(false);
+        refresh(run);
+
+        StringBuilder sb = new StringBuilder();
+        for (BulkVerifier.Mismatch mismatch : run.reported()) {
+            sb.append(String.format("#%d  %s%n      %s%n", mismatch.item() + 1,
+                    mismatch.url() != null ? mismatch.url() : "", mismatch.message()));
+        }
+        if (run.mismatches() > BulkVerifier.MAX_REPORTED) {
+            sb.append(String.format("... and %,d more%n", run.mismatches() - BulkVerifier.MAX_REPORTED));
+        }
+        results.setText(sb.toString());
+        results.setCaretPosition(0);
+
+        if (notify) {
+            JOptionPane.showMessageDialog(this, summary.getText(), "Tl-Signature verification", run.mismatches() > 0
+                    ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    private void refresh() {
+        if (current != null) {
+            refresh(current);
+        }
+    }
+
+    private void refresh(BulkVerifier run) {
+        progress.setValue(run.processed());
+        String state = run.isCancelled() ? " (cancelled)" : "";
+        summary.setText(String.format("%s: checked %,d of %,d, %,d signed, %,d mismatched%s",
+                currentLabel, run.processed(), run.size(), run.signed(), run.mismatches(), state));
+    }
+}
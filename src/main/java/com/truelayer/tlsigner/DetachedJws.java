@@ -0,0 +1,214 @@
+package com.truelayer.tlsigner;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Builds TrueLayer request signatures (tl_version 2 detached JWS) the same way the truelayer-signing library does.
+ *
+ * The signed payload is "METHOD path\n", then "Name: value\n" per signed header, then the raw body. The JWS signing
+ * input BASE64URL(header) + "." + BASE64URL(payload) is never materialised: the payload is base64url-encoded through a
+ * small per-thread buffer straight into a {@link Sink} (a JCA Signature or MessageDigest). The Tl-Signature value is
+ * BASE64URL(protected header) + ".." + BASE64URL(signature).
+ */
+final class DetachedJws
+{
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DOT = {'.'};
+
+    private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+    /**
+     * Receives the signing input in chunks.
+     */
+    interface Sink
+    {
+        void update(byte[] bytes, int offset, int length) throws GeneralSecurityException;
+    }
+
+    private DetachedJws() {
+    }
+
+    /**
+     * BASE64URL of the protected header {"alg":"ES512","kid":...,"tl_version":"2","tl_headers":...}.
+     */
+    static String encodedHeader(String kid, String[] headerNames) {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"alg\":\"ES512\",\"kid\":");
+        appendJsonString(json, kid);
+        json.append(",\"tl_version\":\"2\",\"tl_headers\":");
+        appendJsonString(json, String.join(",", headerNames));
+        json.append('}');
+        return BASE64URL.encodeToString(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stream the JWS signing input for the request into the sink.
+     */
+    static void writeSigningInput(byte[] encodedHeader, String method, String path, String[] headerNames,
+                                  String[] headerValues, byte[] body, Sink sink) throws GeneralSecurityException {
+        sink.update(encodedHeader, 0, encodedHeader.length);
+        sink.update(DOT, 0, 1);
+
+        Encoder encoder = ENCODER.get();
+        encoder.begin(sink);
+        try {
+            encoder.writeUpperAscii(method);
+            encoder.write((byte) ' ');
+            encoder.writeString(path);
+            encoder.write((byte) '\n');
+            for (int i = 0; i < headerNames.length; i++) {
+                encoder.writeString(headerNames[i]);
+                encoder.write((byte) ':');
+                encoder.write((byte) ' ');
+                encoder.writeString(headerValues[i]);
+                encoder.write((byte) '\n');
+            }
+            encoder.write(body, 0, body.length);
+            encoder.finish();
+        } finally {
+            encoder.end();
+        }
+    }
+
+    /**
+     * Tl-Signature value for a P1363 (r || s) signature.
+     */
+    static String assemble(String encodedHeader, byte[] signature) {
+        return encodedHeader + ".." + BASE64URL.encodeToString(signature);
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Unpadded base64url encoder that pushes its output to a sink in buffer-sized chunks.
+     */
+    private static final class Encoder
+    {
+        private final byte[] out = new byte[8192];
+        private int outLength;
+        private final byte[] pending = new byte[3];
+        private int pendingLength;
+        private Sink sink;
+
+        void begin(Sink sink) {
+            this.sink = sink;
+            this.outLength = 0;
+            this.pendingLength = 0;
+        }
+
+        void end() {
+            this.sink = null;
+        }
+
+        void write(byte b) throws GeneralSecurityException {
+            pending[pendingLength++] = b;
+            if (pendingLength == 3) {
+                encodeGroup(pending[0], pending[1], pending[2]);
+                pendingLength = 0;
+            }
+        }
+
+        void write(byte[] bytes, int offset, int length) throws GeneralSecurityException {
+            int i = offset;
+            int end = offset + length;
+            while (pendingLength != 0 && i < end) {
+                write(bytes[i++]);
+            }
+            while (end - i >= 3) {
+                encodeGroup(bytes[i], bytes[i + 1], bytes[i + 2]);
+                i += 3;
+            }
+            while (i < end) {
+                write(bytes[i++]);
+            }
+        }
+
+        /**
+         * Write a string as UTF-8 without allocating for the usual all-ASCII case.
+         */
+        void writeString(String s) throws GeneralSecurityException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    byte[] rest = s.substring(i).getBytes(StandardCharsets.UTF_8);
+                    write(rest, 0, rest.length);
+                    return;
+                }
+                write((byte) c);
+            }
+        }
+
+        void writeUpperAscii(String s) throws GeneralSecurityException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    writeString(s.substring(i).toUpperCase(Locale.ROOT));
+                    return;
+                }
+                write((byte) (c >= 'a' && c <= 'z' ? c - 32 : c));
+            }
+        }
+
+        void finish() throws GeneralSecurityException {
+            if (outLength > out.length - 4) {
+                flush();
+            }
+            if (pendingLength == 1) {
+                int b0 = pending[0] & 0xff;
+                out[outLength++] = ALPHABET[b0 >>> 2];
+                out[outLength++] = ALPHABET[(b0 & 0x03) << 4];
+            } else if (pendingLength == 2) {
+                int b0 = pending[0] & 0xff;
+                int b1 = pending[1] & 0xff;
+                out[outLength++] = ALPHABET[b0 >>> 2];
+                out[outLength++] = ALPHABET[((b0 & 0x03) << 4) | (b1 >>> 4)];
+                out[outLength++] = ALPHABET[(b1 & 0x0f) << 2];
+            }
+            pendingLength = 0;
+            flush();
+        }
+
+        private void encodeGroup(byte b0, byte b1, byte b2) throws GeneralSecurityException {
+            if (outLength > out.length - 4) {
+                flush();
+            }
+            int bits = (b0 & 0xff) << 16 | (b1 & 0xff) << 8 | (b2 & 0xff);
+            out[outLength++] = ALPHABET[(bits >>> 18) & 0x3f];
+            out[outLength++] = ALPHABET[(bits >>> 12) & 0x3f];
+            out[outLength++] = ALPHABET[(bits >>> 6) & 0x3f];
+            out[outLength++] = ALPHABET[bits & 0x3f];
+        }
+
+        private void flush() throws GeneralSecurityException {
+            if (outLength > 0) {
+                sink.update(out, 0, outLength);
+                outLength = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.http.message.HttpHeader;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects header values to set on a request and applies them with as few rebuilds as possible.
+ *
+ * Every with* call on a Montoya HttpRequest copies the whole message, body included. Headers already on the request
+ * are replaced with one withUpdatedHeaders call and missing ones appended with one withAddedHeaders call, so any number
+ * of headers costs at most two copies (one in the common case of re-signing a request).
+ */
+final class HeaderRewrite
+{
+    private final List<HttpHeader> headers = new ArrayList<>(4);
+
+    HeaderRewrite set(String name, String value) {
+        headers.add(HttpHeader.httpHeader(name, value));
+        return this;
+    }
+
+    HttpRequest applyTo(HttpRequest request) {
+        List<HttpHeader> updates = null;
+        List<HttpHeader> additions = null;
+        for (HttpHeader header : headers) {
+            if (request.hasHeader(header.name())) {
+                if (updates == null) updates = new ArrayList<>(headers.size());
+                updates.add(header);
+            } else {
+                if (additions == null) additions = new ArrayList<>(headers.size());
+                additions.add(header);
+            }
+        }
+
+        HttpRequest rewritten = request;
+        if (updates != null) {
+            rewritten = rewritten.withUpdatedHeaders(updates);
+        }
+        if (additions != null) {
+            rewritten = rewritten.withAddedHeaders(additions);
+        }
+        return rewritten;
+    }
+}
@@ -0,0 +1,64 @@
+package com.truelayer.tlsigner;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Per-thread random (version 4) UUID generator for Idempotency-Key values.
+ *
+ * UUID.randomUUID() draws from one shared SecureRandom, which serialises Burp's HTTP threads under Intruder load.
+ * Here every thread owns its own DRBG instance and pulls random bytes from it in batches, so generating a key never
+ * touches shared state.
+ */
+final class IdempotencyKeys
+{
+    private static final int KEYS_PER_BATCH = 64;
+
+    private static final ThreadLocal<Batch> BATCH = ThreadLocal.withInitial(Batch::new);
+
+    private IdempotencyKeys() {
+    }
+
+    static String next() {
+        return BATCH.get().next();
+    }
+
+    private static final class Batch
+    {
+        private final SecureRandom random = newRandom();
+        private final byte[] bytes = new byte[16 * KEYS_PER_BATCH];
+        private int offset = bytes.length;
+
+        String next() {
+            if (offset == bytes.length) {
+                random.nextBytes(bytes);
+                offset = 0;
+            }
+            long msb = 0;
+            long lsb = 0;
+            for (int i = 0; i < 8; i++) {
+                msb = (msb << 8) | (bytes[offset + i] & 0xff);
+            }
+            for (int i = 8; i < 16; i++) {
+                lsb = (lsb << 8) | (bytes[offset + i] & 0xff);
+            }
+            // consumed bytes are cleared so a key can't be recovered from the buffer later
+            Arrays.fill(bytes, offset, offset + 16, (byte) 0);
+            offset += 16;
+
+            msb = (msb & 0xffffffffffff0fffL) | 0x0000000000004000L; // version 4
+            lsb = (lsb & 0x3fffffffffffffffL) | 0x8000000000000000L; // IETF variant
+            return new UUID(msb, lsb).toString();
+        }
+
+        private static SecureRandom newRandom() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+}
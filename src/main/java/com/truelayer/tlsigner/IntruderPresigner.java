@@ -0,0 +1,310 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.core.Range;
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.intruder.AttackConfiguration;
+import burp.api.montoya.intruder.GeneratedPayload;
+import burp.api.montoya.intruder.HttpRequestTemplate;
+import burp.api.montoya.intruder.IntruderInsertionPoint;
+import burp.api.montoya.intruder.PayloadGenerator;
+import burp.api.montoya.intruder.PayloadGeneratorProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Intruder payload generator that signs the attack's requests ahead of time.
+ *
+ * Payloads come from a file configured in the extension tab, one per line. For a single-position attack each payload
+ * is substituted into the request template and signed on a pool of worker threads, staying at most {@link #WINDOW}
+ * payloads ahead of Intruder. The results are kept by signing input; when Intruder sends the request, the HttpHandler
+ * finds the ready signature with {@link #take} and only has to set the two headers. Anything that makes the sent
+ * request differ from the pre-signed one (Intruder payload encoding, multiple positions, settings changed mid-attack)
+ * just misses the lookup and is signed inline as before.
+ */
+final class IntruderPresigner implements PayloadGeneratorProvider
+{
+    // How far signing may run ahead of Intruder; unclaimed results older than twice this are dropped
+    private static final int WINDOW = 4096;
+    // Longest Intruder waits for a payload's signature before sending it to be signed inline
+    private static final long WAIT_MILLIS = 5000;
+    // An attack that asks for no payload for this long is assumed stopped and its workers released
+    private static final long IDLE_SECONDS = 60;
+
+    /**
+     * Signs a request exactly as the HttpHandler would for Intruder, or returns null if it wouldn't be signed.
+     */
+    interface RequestSigning
+    {
+        Entry sign(HttpRequest request) throws Exception;
+    }
+
+    /**
+     * Everything the signature covers, plus the kid, so a lookup only hits for an identical request and key.
+     */
+    static final class Key
+    {
+        private final String kid;
+        private final String method;
+        private final String path;
+        private final String idempotencyKey;
+        private final String[] headerValues;
+        private final byte[] body;
+        private final int hash;
+
+        /**
+         * @param idempotencyKey the request's own Idempotency-Key when it is preserved, otherwise null
+         */
+        Key(String kid, String method, String path, String idempotencyKey, String[] headerValues, byte[] body) {
+            this.kid = kid;
+            this.method = method;
+            this.path = path;
+            this.idempotencyKey = idempotencyKey;
+            this.headerValues = headerValues;
+            this.body = body;
+            this.hash = Objects.hash(kid, method, path, idempotencyKey) * 31 * 31
+                    + Arrays.hashCode(headerValues) * 31 + Arrays.hashCode(body);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && hash == other.hash && kid.equals(other.kid) && method.equals(other.method)
+                    && path.equals(other.path) && Objects.equals(idempotencyKey, other.idempotencyKey)
+                    && Arrays.equals(headerValues, other.headerValues) && Arrays.equals(body, other.body);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    record Entry(Key key, String idempotencyKey, String tlSignature)
+    {
+    }
+
+    private final Supplier<String> payloadFile;
+    private final RequestSigning signing;
+    private final ThrottledLogger logger;
+    private final Map<Key, Entry> ready = new ConcurrentHashMap<>();
+    private final Set<Attack> attacks = ConcurrentHashMap.newKeySet();
+    // Bumped by clear(), so signatures still being made with the old keys are dropped once they finish
+    private final AtomicLong generation = new AtomicLong();
+
+    IntruderPresigner(Supplier<String> payloadFile, RequestSigning signing, ThrottledLogger logger) {
+        this.payloadFile = payloadFile;
+        this.signing = signing;
+        this.logger = logger;
+    }
+
+    @Override
+    public String displayName() {
+        return "TrueLayer pre-signed payloads";
+    }
+
+    @Override
+    public PayloadGenerator providePayloadGenerator(AttackConfiguration attackConfiguration) {
+        String file = payloadFile.get();
+        List<String> payloads;
+        try {
+            if (file == null || file.isEmpty()) {
+                throw new IllegalStateException("no payload file configured in the TrueLayer Tl-Signature tab");
+            }
+            payloads = Files.readAllLines(Path.of(file), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            logger.error("TrueLayer Tl-Signature: Intruder pre-signing: can't read payloads: " + e.getMessage());
+            return point -> GeneratedPayload.end();
+        }
+        if (attacks.isEmpty()) {
+            // leftovers of earlier attacks that were never sent as pre-signed
+            ready.clear();
+        }
+        return new Attack(payloads, attackConfiguration);
+    }
+
+    /**
+     * True while pre-signed results may be waiting, so the request path can skip the lookup otherwise.
+     */
+    boolean hasPending() {
+        return !ready.isEmpty();
+    }
+
+    /**
+     * Claim the pre-signed headers for a request, or null if there are none.
+     */
+    Entry take(Key key) {
+        return ready.remove(key);
+    }
+
+    /**
+     * Drop every pre-signed result, for when the signing keys change: an entry is matched on its kid, which a reloaded
+     * key file can keep for a new key. Requests of a running attack are then signed inline.
+     */
+    void clear() {
+        generation.incrementAndGet();
+        ready.clear();
+    }
+
+    void stop() {
+        for (Attack attack : attacks) {
+            attack.finish();
+        }
+        ready.clear();
+    }
+
+    /**
+     * One Intruder attack: hands out payloads in order while the pool signs ahead of it.
+     */
+    private final class Attack implements PayloadGenerator
+    {
+        private final List<String> payloads;
+        private final byte[] template;
+        private final Range position;
+        private final HttpService service;
+        private final CompletableFuture<?>[] signed;
+        private final Key[] keys;
+        private final Semaphore window = new Semaphore(WINDOW);
+        private final ExecutorService pool;
+        private final Thread feeder;
+        private int next;
+
+        Attack(List<String> payloads, AttackConfiguration configuration) {
+            this.payloads = payloads;
+            HttpRequestTemplate requestTemplate = configuration.requestTemplate();
+            List<Range> positions = requestTemplate.insertionPointOffsets();
+            this.service = configuration.httpService().orElse(null);
+            if (positions.size() != 1 || service == null) {
+                // each payload goes into several positions; not worth predicting, sign inline
+                logger.error("TrueLayer Tl-Signature: Intruder pre-signing needs exactly one payload position; signing inline");
+                this.template = null;
+                this.position = null;
+                this.signed = null;
+                this.keys = null;
+                this.pool = null;
+                this.feeder = null;
+                return;
+            }
+            this.template = requestTemplate.content().getBytes();
+            this.position = positions.get(0);
+            this.signed = new CompletableFuture<?>[payloads.size()];
+            this.keys = new Key[payloads.size()];
+            this.pool = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), r -> {
+                Thread t = new Thread(r, "tl-signer-intruder-presign");
+                t.setDaemon(true);
+                t.setPriority(Thread.NORM_PRIORITY - 1);
+                return t;
+            });
+            attacks.add(this);
+            for (int i = 0; i < signed.length; i++) {
+                signed[i] = new CompletableFuture<Void>();
+            }
+            this.feeder = new Thread(this::feed, "tl-signer-intruder-feed");
+            feeder.setDaemon(true);
+            feeder.start();
+        }
+
+        @Override
+        public GeneratedPayload generatePayloadFor(IntruderInsertionPoint insertionPoint) {
+            int i;
+            synchronized (this) {
+                if (next >= payloads.size()) {
+                    finish();
+                    return GeneratedPayload.end();
+                }
+                i = next++;
+            }
+            if (pool != null) {
+                // wait outside the lock, so Intruder threads asking for later payloads aren't held up behind this one
+                try {
+                    signed[i].get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception ignored) {
+                    // not ready or failed: the handler signs this one inline
+                }
+                window.release();
+                int stale = i - 2 * WINDOW;
+                if (stale >= 0) {
+                    synchronized (this) {
+                        if (keys[stale] != null) {
+                            ready.remove(keys[stale]);
+                            keys[stale] = null;
+                        }
+                    }
+                }
+            }
+            return GeneratedPayload.payload(payloads.get(i));
+        }
+
+        private void feed() {
+            try {
+                for (int i = 0; i < payloads.size() && !pool.isShutdown(); i++) {
+                    if (!window.tryAcquire(IDLE_SECONDS, TimeUnit.SECONDS)) {
+                        finish();
+                        return;
+                    }
+                    int index = i;
+                    CompletableFuture<?> done = signed[index];
+                    pool.execute(() -> {
+                        try {
+                            long signedIn = generation.get();
+                            Entry entry = signing.sign(HttpRequest.httpRequest(service, ByteArray.byteArray(requestFor(index))));
+                            if (entry != null) {
+                                synchronized (Attack.this) {
+                                    keys[index] = entry.key();
+                                }
+                                ready.put(entry.key(), entry);
+                                if (generation.get() != signedIn) {
+                                    ready.remove(entry.key(), entry);
+                                }
+                            }
+                        } catch (Exception e) {
+                            logger.error("TrueLayer Tl-Signature: Intruder pre-signing failed: " + e.getMessage());
+                        } finally {
+                            done.complete(null);
+                        }
+                    });
+                }
+            } catch (InterruptedException | RejectedExecutionException ignored) {
+                // attack finished or extension unloading
+            }
+        }
+
+        private byte[] requestFor(int index) {
+            byte[] payload = payloads.get(index).getBytes(StandardCharsets.UTF_8);
+            int start = position.startIndexInclusive();
+            int end = position.endIndexExclusive();
+            byte[] request = new byte[template.length - (end - start) + payload.length];
+            System.arraycopy(template, 0, request, 0, start);
+            System.arraycopy(payload, 0, request, start, payload.length);
+            System.arraycopy(template, end, request, start + payload.length, template.length - end);
+            return request;
+        }
+
+        void finish() {
+            attacks.remove(this);
+            if (pool != null) {
+                pool.shutdownNow();
+                // the feeder may be parked on the window for up to IDLE_SECONDS
+                feeder.interrupt();
+            }
+        }
+    }
+}
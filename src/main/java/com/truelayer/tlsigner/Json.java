@@ -0,0 +1,324 @@
+package com.truelayer.tlsigner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the headless tools, which can't rely on any JSON library being on the classpath.
+ *
+ * Values map to LinkedHashMap (objects, key order kept), ArrayList, String, BigDecimal, Boolean and null.
+ * {@link Parser} is a pull parser over a Reader, so a large document such as a HAR file can be walked one array
+ * element at a time instead of being loaded whole.
+ */
+final class Json
+{
+    private Json() {
+    }
+
+    static Object parse(String text) throws IOException {
+        Parser parser = new Parser(new StringReader(text));
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.peek() != -1) {
+            throw parser.error("trailing characters");
+        }
+        return value;
+    }
+
+    static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    static void write(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String s) {
+            writeString(sb, s);
+        } else if (value instanceof Map<?, ?> map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                writeString(sb, String.valueOf(entry.getKey()));
+                sb.append(':');
+                write(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof List<?> list) {
+            sb.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) sb.append(',');
+                write(sb, list.get(i));
+            }
+            sb.append(']');
+        } else if (value instanceof BigDecimal || value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else {
+            throw new IllegalArgumentException("Not a JSON value: " + value.getClass().getName());
+        }
+    }
+
+    static void writeString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Pull parser. Use {@link #readValue()} to read a whole value, or the begin/next/end methods to walk containers.
+     */
+    static final class Parser
+    {
+        private final Reader reader;
+        private int peeked = -2;
+        private long position;
+        // true right after begin*: the next member needs no separating comma
+        private boolean first;
+
+        Parser(Reader reader) {
+            this.reader = reader;
+        }
+
+        int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = reader.read();
+            }
+            return peeked;
+        }
+
+        private int next() throws IOException {
+            int c = peek();
+            peeked = -2;
+            position++;
+            return c;
+        }
+
+        void skipWhitespace() throws IOException {
+            while (true) {
+                int c = peek();
+                if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                    next();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            skipWhitespace();
+            int c = next();
+            if (c != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+
+        void beginObject() throws IOException {
+            expect('{');
+            first = true;
+        }
+
+        void beginArray() throws IOException {
+            expect('[');
+            first = true;
+        }
+
+        /**
+         * True if the current object or array has another member; consumes the separating comma.
+         */
+        boolean hasNext() throws IOException {
+            skipWhitespace();
+            int c = peek();
+            if (c == '}' || c == ']') {
+                return false;
+            }
+            if (!first) {
+                if (c != ',') {
+                    throw error("expected ',' or end of container");
+                }
+                next();
+            }
+            first = false;
+            return true;
+        }
+
+        String nextName() throws IOException {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("expected object key");
+            }
+            String name = readString();
+            expect(':');
+            return name;
+        }
+
+        void endObject() throws IOException {
+            expect('}');
+            first = false;
+        }
+
+        void endArray() throws IOException {
+            expect(']');
+            first = false;
+        }
+
+        Object readValue() throws IOException {
+            skipWhitespace();
+            int c = peek();
+            switch (c) {
+                case '{': {
+                    next();
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    skipWhitespace();
+                    if (peek() == '}') {
+                        next();
+                        return map;
+                    }
+                    do {
+                        String key = nextName();
+                        map.put(key, readValue());
+                        skipWhitespace();
+                    } while (consume(','));
+                    expectAfterWhitespace('}');
+                    return map;
+                }
+                case '[': {
+                    next();
+                    List<Object> list = new ArrayList<>();
+                    skipWhitespace();
+                    if (peek() == ']') {
+                        next();
+                        return list;
+                    }
+                    do {
+                        list.add(readValue());
+                        skipWhitespace();
+                    } while (consume(','));
+                    expectAfterWhitespace(']');
+                    return list;
+                }
+                case '"':
+                    return readString();
+                case 't':
+                    literal("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    literal("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    literal("null");
+                    return null;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw error(c == -1 ? "unexpected end of input" : "unexpected character '" + (char) c + "'");
+            }
+        }
+
+        private boolean consume(char expected) throws IOException {
+            if (peek() == expected) {
+                next();
+                return true;
+            }
+            return false;
+        }
+
+        private void expectAfterWhitespace(char expected) throws IOException {
+            skipWhitespace();
+            if (next() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+
+        private void literal(String word) throws IOException {
+            for (int i = 0; i < word.length(); i++) {
+                if (next() != word.charAt(i)) {
+                    throw error("invalid literal");
+                }
+            }
+        }
+
+        private BigDecimal readNumber() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = peek()) != -1 && (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9'))) {
+                sb.append((char) next());
+            }
+            try {
+                return new BigDecimal(sb.toString());
+            } catch (NumberFormatException e) {
+                throw error("invalid number " + sb);
+            }
+        }
+
+        private String readString() throws IOException {
+            next(); // opening quote
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                int c = next();
+                if (c == -1) {
+                    throw error("unterminated string");
+                }
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append((char) c);
+                    continue;
+                }
+                int e = next();
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append((char) e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(next(), 16);
+                            if (digit < 0) {
+                                throw error("invalid unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        sb.append((char) code);
+                    }
+                    default -> throw error("invalid escape");
+                }
+            }
+        }
+
+        IOException error(String message) {
+            return new IOException("Invalid JSON at character " + position + ": " + message);
+        }
+    }
+}
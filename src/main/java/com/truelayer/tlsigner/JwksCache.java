@@ -0,0 +1,124 @@
+package com.truelayer.tlsigner;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Public keys for signature verification, looked up by kid from a locally configured JWKS.
+ *
+ * The source is either the JWKS JSON itself or the path of a file containing it. Parsed keys are kept in a bounded
+ * LRU map and expire after {@link #TTL_MILLIS}, so a rotated key file is picked up without re-parsing JWK JSON for
+ * every message. A miss reloads the whole source, at most once per {@link #MIN_RELOAD_MILLIS}, so a flood of
+ * messages signed with an unknown kid doesn't turn into a flood of file reads.
+ */
+final class JwksCache implements SignatureVerifier.KeyLookup
+{
+    private static final int MAX_KEYS = 64;
+    private static final long TTL_MILLIS = 10 * 60 * 1000;
+    private static final long MIN_RELOAD_MILLIS = 30 * 1000;
+
+    private static final Map<String, String> CURVES = Map.of(
+            "P-256", "secp256r1",
+            "P-384", "secp384r1",
+            "P-521", "secp521r1");
+
+    private final String source;
+    private final Map<String, Entry> keys = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_KEYS;
+        }
+    };
+    private long lastLoadMillis = Long.MIN_VALUE / 2;
+
+    private record Entry(ECPublicKey key, long expiresAtMillis)
+    {
+    }
+
+    /**
+     * @param source JWKS JSON, or a path to a file containing it
+     */
+    JwksCache(String source) {
+        this.source = source.trim();
+    }
+
+    /**
+     * The EC public key with this kid, or null if the JWKS doesn't have one.
+     */
+    @Override
+    public synchronized ECPublicKey get(String kid) throws IOException, GeneralSecurityException {
+        long now = System.currentTimeMillis();
+        Entry entry = keys.get(kid);
+        if (entry != null && entry.expiresAtMillis > now) {
+            return entry.key;
+        }
+        if (entry != null || now - lastLoadMillis >= MIN_RELOAD_MILLIS) {
+            keys.remove(kid);
+            refresh();
+            entry = keys.get(kid);
+        }
+        return entry != null ? entry.key : null;
+    }
+
+    /**
+     * Reload the JWKS now, returning how many usable keys it has.
+     */
+    synchronized int refresh() throws IOException, GeneralSecurityException {
+        long now = System.currentTimeMillis();
+        lastLoadMillis = now;
+        Map<String, ECPublicKey> loaded = parse(load());
+        loaded.forEach((id, key) -> keys.put(id, new Entry(key, now + TTL_MILLIS)));
+        return loaded.size();
+    }
+
+    private String load() throws IOException {
+        if (source.startsWith("{")) {
+            return source;
+        }
+        return Files.readString(Path.of(source), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * EC keys of a JWKS document by kid. Keys of other types or curves are skipped.
+     */
+    static Map<String, ECPublicKey> parse(String jwks) throws IOException, GeneralSecurityException {
+        if (!(Json.parse(jwks) instanceof Map<?, ?> document) || !(document.get("keys") instanceof List<?> list)) {
+            throw new IOException("JWKS must be an object with a \"keys\" array");
+        }
+        Map<String, ECPublicKey> result = new HashMap<>();
+        KeyFactory factory = KeyFactory.getInstance("EC");
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> jwk) || !"EC".equals(jwk.get("kty"))
+                    || !(jwk.get("kid") instanceof String kid) || !(jwk.get("crv") instanceof String crv)
+                    || !CURVES.containsKey(crv) || !(jwk.get("x") instanceof String x) || !(jwk.get("y") instanceof String y)) {
+                continue;
+            }
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(CURVES.get(crv)));
+            ECParameterSpec spec = parameters.getParameterSpec(ECParameterSpec.class);
+            ECPoint point = new ECPoint(coordinate(x), coordinate(y));
+            result.put(kid, (ECPublicKey) factory.generatePublic(new ECPublicKeySpec(point, spec)));
+        }
+        return result;
+    }
+
+    private static BigInteger coordinate(String base64url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(base64url));
+    }
+}
@@ -0,0 +1,99 @@
+package com.truelayer.tlsigner;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reloads a {@link KeyRotation} properties file whenever it, or anything else in its directory or in the directories
+ * of the key files it names (such as a newly dropped PEM), changes.
+ *
+ * Changes are debounced so a tool writing several files is picked up once, after the last write. A file that fails to
+ * load is logged and the previous keys stay in use, so a half-written update never stops signing.
+ */
+final class KeyFileWatcher
+{
+    // Quiet period after the last change before reloading
+    private static final long SETTLE_MILLIS = 500;
+
+    private final Path file;
+    private final PemKeys.Loader pemLoader;
+    private final ThrottledLogger logger;
+    private final WatchService watchService;
+    // Directories registered with watchService; guarded by this
+    private final Set<Path> watched = new HashSet<>();
+    private Consumer<KeyRotation> onReload;
+
+    KeyFileWatcher(Path file, PemKeys.Loader pemLoader, ThrottledLogger logger) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.pemLoader = pemLoader;
+        this.logger = logger;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        watchDirectory(this.file.getParent());
+    }
+
+    /**
+     * Start watching; {@code onReload} gets each successfully reloaded rotation on the watcher thread.
+     */
+    void start(Consumer<KeyRotation> onReload) {
+        this.onReload = onReload;
+        Thread thread = new Thread(this::watch, "tl-signer-key-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    /**
+     * Load the file now, throwing if it can't be used. Directories of key files it now names are watched from here on.
+     */
+    KeyRotation load() throws Exception {
+        KeyRotation rotation = KeyRotation.load(file, pemLoader);
+        for (Path keyFile : KeyRotation.keyFiles(file)) {
+            watchDirectory(keyFile.getParent());
+        }
+        return rotation;
+    }
+
+    private synchronized void watchDirectory(Path dir) throws IOException {
+        if (!watched.contains(dir)) {
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            watched.add(dir);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // keep draining until the directory has been quiet for a moment
+                do {
+                    key.pollEvents();
+                    key.reset();
+                } while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                try {
+                    onReload.accept(load());
+                } catch (Exception e) {
+                    logger.error("TrueLayer Tl-Signature: keeping previous keys, can't reload " + file + ": ", e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed when the settings change or the extension unloads
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.core.ToolType;
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable set of kid/key routes, compiled into a host hash plus per-host path-segment tries.
+ *
+ * Routes are configured one per line as semicolon separated attributes, for example:
+ * <pre>
+ * kid=1a2b...; key=/keys/sandbox-merchant-a.pem; host=api.truelayer-sandbox.com; path=/v3/payments
+ * kid=3c4d...; key=/keys/prod.pem; host=*.truelayer.com; header=X-Client-Id:merchant-b; tool=REPEATER
+ * </pre>
+ * kid and key (a PEM file) are required; host, path, header and tool are optional conditions. Each key is parsed
+ * into its own {@link SigningContext} when the registry is compiled.
+ *
+ * Lookup picks the most specific route: an exact host before a wildcard host (longest suffix first) before routes
+ * without a host, then the longest matching path prefix, then declaration order. A request costs one hash lookup
+ * on the host and one walk down the path segments, however many keys are configured.
+ */
+final class KeyRegistry
+{
+    static final KeyRegistry EMPTY = new KeyRegistry(new HashMap<>(), new String[0], new PathTrie[0], null, List.of(), false);
+
+    private final Map<String, PathTrie> exactHosts;
+    // Wildcard host suffixes (".truelayer.com") sorted longest first, with their tries at the same index
+    private final String[] hostSuffixes;
+    private final PathTrie[] suffixTries;
+    private final PathTrie anyHost;
+    private final int size;
+    private final List<SigningContext> contexts;
+    private final boolean hasToolRoutes;
+
+    private KeyRegistry(Map<String, PathTrie> exactHosts, String[] hostSuffixes, PathTrie[] suffixTries, PathTrie anyHost,
+                        List<SigningContext> contexts, boolean hasToolRoutes) {
+        this.exactHosts = exactHosts;
+        this.hostSuffixes = hostSuffixes;
+        this.suffixTries = suffixTries;
+        this.anyHost = anyHost;
+        this.size = contexts.size();
+        this.contexts = contexts;
+        this.hasToolRoutes = hasToolRoutes;
+    }
+
+    static KeyRegistry parse(String spec, PemKeys.Loader loader) throws Exception {
+        Map<String, PathTrie> exact = new HashMap<>();
+        Map<String, PathTrie> suffixes = new HashMap<>();
+        PathTrie any = null;
+        List<SigningContext> contexts = new ArrayList<>();
+        boolean toolRoutes = false;
+
+        if (spec != null) {
+            int lineNumber = 0;
+            for (String line : spec.split("\\r?\\n")) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                Route route;
+                try {
+                    route = Route.parse(trimmed, loader);
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Key route line " + lineNumber + ": " + e.getMessage(), e);
+                }
+
+                PathTrie trie;
+                if (route.host == null) {
+                    trie = any != null ? any : (any = new PathTrie());
+                } else if (route.host.startsWith("*.")) {
+                    trie = suffixes.computeIfAbsent(route.host.substring(1), h -> new PathTrie());
+                } else {
+                    trie = exact.computeIfAbsent(route.host, h -> new PathTrie());
+                }
+                trie.add(route);
+                contexts.add(route.context);
+                toolRoutes |= route.tool != null;
+            }
+        }
+
+        if (contexts.isEmpty()) {
+            return EMPTY;
+        }
+        List<String> suffixList = new ArrayList<>(suffixes.keySet());
+        suffixList.sort((a, b) -> b.length() - a.length());
+        PathTrie[] suffixTries = new PathTrie[suffixList.size()];
+        for (int i = 0; i < suffixTries.length; i++) {
+            suffixTries[i] = suffixes.get(suffixList.get(i));
+        }
+        return new KeyRegistry(exact, suffixList.toArray(new String[0]), suffixTries, any, List.copyOf(contexts), toolRoutes);
+    }
+
+    /**
+     * Signing context of every route, in configuration order.
+     */
+    List<SigningContext> contexts() {
+        return contexts;
+    }
+
+    /**
+     * True if any route has a tool= condition. Those never match a request without a tool, such as one signed by the
+     * session handling rule action.
+     */
+    boolean hasToolRoutes() {
+        return hasToolRoutes;
+    }
+
+    /**
+     * The signing context of the most specific matching route, or null if none matches.
+     */
+    SigningContext select(HttpRequest request, ToolType toolType) {
+        if (size == 0) {
+            return null;
+        }
+        String path = request.path();
+        if (path == null || path.isEmpty()) path = "/";
+
+        HttpService service = request.httpService();
+        String host = service != null && service.host() != null ? service.host().toLowerCase(Locale.ROOT) : null;
+        if (host != null) {
+            PathTrie trie = exactHosts.get(host);
+            Route route = trie != null ? trie.match(path, request, toolType) : null;
+            if (route != null) {
+                return route.context;
+            }
+            for (int i = 0; i < hostSuffixes.length; i++) {
+                if (host.length() > hostSuffixes[i].length() && host.endsWith(hostSuffixes[i])) {
+                    route = suffixTries[i].match(path, request, toolType);
+                    if (route != null) {
+                        return route.context;
+                    }
+                }
+            }
+        }
+        Route route = anyHost != null ? anyHost.match(path, request, toolType) : null;
+        return route != null ? route.context : null;
+    }
+
+    private static final class Route
+    {
+        final String host;
+        final String pathPrefix;
+        final String headerName;
+        final String headerValue;
+        final ToolType tool;
+        final SigningContext context;
+
+        private Route(String host, String pathPrefix, String headerName, String headerValue, ToolType tool, SigningContext context) {
+            this.host = host;
+            this.pathPrefix = pathPrefix;
+            this.headerName = headerName;
+            this.headerValue = headerValue;
+            this.tool = tool;
+            this.context = context;
+        }
+
+        static Route parse(String line, PemKeys.Loader loader) throws Exception {
+            String kid = null, keyFile = null, host = null, path = null, headerName = null, headerValue = null;
+            ToolType tool = null;
+            for (String attribute : line.split(";")) {
+                String trimmed = attribute.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int eq = trimmed.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("expected name=value but got \"" + trimmed + "\"");
+                }
+                String name = trimmed.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+                String value = trimmed.substring(eq + 1).trim();
+                switch (name) {
+                    case "kid" -> kid = value;
+                    case "key" -> keyFile = value;
+                    case "host" -> host = value.toLowerCase(Locale.ROOT);
+                    case "path" -> path = value.startsWith("/") ? value : "/" + value;
+                    case "header" -> {
+                        int colon = value.indexOf(':');
+                        if (colon <= 0) {
+                            throw new IllegalArgumentException("header condition must be Name:value");
+                        }
+                        headerName = value.substring(0, colon).trim();
+                        headerValue = value.substring(colon + 1).trim();
+                    }
+                    case "tool" -> tool = ToolType.valueOf(value.toUpperCase(Locale.ROOT));
+                    default -> throw new IllegalArgumentException("unknown attribute \"" + name + "\"");
+                }
+            }
+            if (kid == null || kid.isEmpty() || keyFile == null || keyFile.isEmpty()) {
+                throw new IllegalArgumentException("kid and key are required");
+            }
+            if (host != null && host.indexOf('*') >= 0 && (!host.startsWith("*.") || host.indexOf('*', 1) >= 0)) {
+                throw new IllegalArgumentException("unsupported host pattern " + host);
+            }
+            String pem = Files.readString(Path.of(keyFile), StandardCharsets.UTF_8);
+            return new Route(host, path, headerName, headerValue, tool, SigningContext.create(kid, loader.load(pem)));
+        }
+
+        boolean accepts(HttpRequest request, ToolType toolType) {
+            if (tool != null && tool != toolType) {
+                return false;
+            }
+            return headerName == null || headerValue.equals(request.headerValue(headerName));
+        }
+    }
+
+    /**
+     * Trie over "/"-separated path segments. A prefix matches whole segments, so "/v3/payments" matches
+     * "/v3/payments/123" but not "/v3/payments-links".
+     */
+    private static final class PathTrie
+    {
+        private final Map<String, PathTrie> children = new HashMap<>();
+        private final List<Route> routes = new ArrayList<>(1);
+
+        void add(Route route) {
+            PathTrie node = this;
+            if (route.pathPrefix != null) {
+                for (String segment : route.pathPrefix.split("/")) {
+                    if (!segment.isEmpty()) {
+                        node = node.children.computeIfAbsent(segment, s -> new PathTrie());
+                    }
+                }
+            }
+            node.routes.add(route);
+        }
+
+        /**
+         * Deepest route whose conditions accept the request.
+         */
+        Route match(String path, HttpRequest request, ToolType toolType) {
+            int end = path.indexOf('?');
+            if (end < 0) end = path.length();
+
+            Route best = firstAccepting(request, toolType);
+            PathTrie node = this;
+            int start = 0;
+            while (start < end && !node.children.isEmpty()) {
+                if (path.charAt(start) == '/') {
+                    start++;
+                    continue;
+                }
+                int slash = path.indexOf('/', start);
+                int segmentEnd = slash < 0 || slash > end ? end : slash;
+                node = node.children.get(path.substring(start, segmentEnd));
+                if (node == null) {
+                    break;
+                }
+                Route route = node.firstAccepting(request, toolType);
+                if (route != null) {
+                    best = route;
+                }
+                start = segmentEnd;
+            }
+            return best;
+        }
+
+        private Route firstAccepting(HttpRequest request, ToolType toolType) {
+            for (Route route : routes) {
+                if (route.accepts(request, toolType)) {
+                    return route;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.truelayer.tlsigner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Immutable pair of the current signing key and an optional next key that takes over at a fixed instant.
+ *
+ * The cut-over needs no thread and no lock: every request asks {@link #active} with the current time, so all
+ * requests on every Burp instance switch at the configured instant (within clock skew), even if nothing else runs at
+ * that moment. For the grace window after activation both keys are still listed by {@link #contexts}, so signatures
+ * made with the old key just before the switch keep verifying; after it the rotation can be {@link #settle settled}
+ * into one with only the new key.
+ *
+ * A rotation can also be read from a properties file, for ops tooling that drops new keys onto disk:
+ * <pre>
+ * kid=45fc75cf-...
+ * key=current.pem
+ * next.kid=9d1e0a2b-...
+ * next.key=next.pem
+ * next.activates_at=2026-11-01T00:00:00Z
+ * grace_minutes=60
+ * </pre>
+ * Key paths are relative to the properties file, or absolute. The next.* entries and grace_minutes are optional.
+ */
+final class KeyRotation
+{
+    static final KeyRotation NONE = new KeyRotation(null, null, Long.MAX_VALUE, 0);
+
+    private final SigningContext current;
+    private final SigningContext next;
+    private final long activatesAtMillis;
+    private final long graceMillis;
+
+    private KeyRotation(SigningContext current, SigningContext next, long activatesAtMillis, long graceMillis) {
+        this.current = current;
+        this.next = next;
+        this.activatesAtMillis = activatesAtMillis;
+        this.graceMillis = graceMillis;
+    }
+
+    static KeyRotation of(SigningContext current) {
+        return current == null ? NONE : new KeyRotation(current, null, Long.MAX_VALUE, 0);
+    }
+
+    /**
+     * @param next the key to sign with from {@code activatesAt} on, or null for no rotation
+     */
+    static KeyRotation of(SigningContext current, SigningContext next, Instant activatesAt, Duration grace) {
+        if (next == null) {
+            return of(current);
+        }
+        return new KeyRotation(current, next, activatesAt.toEpochMilli(), grace.toMillis());
+    }
+
+    /**
+     * The key to sign with at {@code nowMillis}, or null if none is configured. Lock-free: called for every request.
+     */
+    SigningContext active(long nowMillis) {
+        return next != null && nowMillis >= activatesAtMillis ? next : current;
+    }
+
+    SigningContext current() {
+        return current;
+    }
+
+    SigningContext next() {
+        return next;
+    }
+
+    boolean hasNext() {
+        return next != null;
+    }
+
+    long activatesAtMillis() {
+        return activatesAtMillis;
+    }
+
+    /**
+     * When the old key can be dropped: the end of the grace window.
+     */
+    long settlesAtMillis() {
+        return activatesAtMillis + graceMillis;
+    }
+
+    /**
+     * Every key in use at {@code nowMillis}: the active one first, then the other while the rotation is pending or in
+     * its grace window.
+     */
+    List<SigningContext> contexts(long nowMillis) {
+        List<SigningContext> contexts = new ArrayList<>(2);
+        SigningContext active = active(nowMillis);
+        if (active != null) {
+            contexts.add(active);
+        }
+        if (next != null && nowMillis < settlesAtMillis()) {
+            SigningContext other = active == next ? current : next;
+            if (other != null) {
+                contexts.add(other);
+            }
+        }
+        return contexts;
+    }
+
+    /**
+     * The rotation with the next key as the only key, once the grace window is over.
+     */
+    KeyRotation settle() {
+        return next == null ? this : of(next);
+    }
+
+    /**
+     * Read a rotation from a properties file, see the class comment for the format.
+     */
+    static KeyRotation load(Path file, PemKeys.Loader pemLoader) throws Exception {
+        Properties properties = properties(file);
+        Path dir = file.toAbsolutePath().getParent();
+        SigningContext current = context(dir, properties, "", pemLoader);
+        if (current == null) {
+            throw new IllegalArgumentException(file + ": kid and key are required");
+        }
+        SigningContext next = context(dir, properties, "next.", pemLoader);
+        if (next == null) {
+            return of(current);
+        }
+        String activatesAt = properties.getProperty("next.activates_at", "").trim();
+        if (activatesAt.isEmpty()) {
+            throw new IllegalArgumentException(file + ": next.activates_at is required with a next key");
+        }
+        return of(current, next, parseInstant(activatesAt), parseGrace(properties.getProperty("grace_minutes", "").trim()));
+    }
+
+    /**
+     * The key files a rotation properties file names, resolved against its directory.
+     */
+    static List<Path> keyFiles(Path file) throws IOException {
+        Properties properties = properties(file);
+        Path dir = file.toAbsolutePath().getParent();
+        List<Path> keyFiles = new ArrayList<>(2);
+        for (String name : new String[]{"key", "next.key"}) {
+            String keyFile = properties.getProperty(name, "").trim();
+            if (!keyFile.isEmpty()) {
+                keyFiles.add(dir.resolve(keyFile).toAbsolutePath());
+            }
+        }
+        return keyFiles;
+    }
+
+    private static Properties properties(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    static Instant parseInstant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid activation time '" + value + "' (expected e.g. 2026-11-01T00:00:00Z)");
+        }
+    }
+
+    /**
+     * Grace window in whole minutes; empty means none.
+     */
+    static Duration parseGrace(String minutes) {
+        if (minutes.isEmpty()) {
+            return Duration.ZERO;
+        }
+        try {
+            long value = Long.parseLong(minutes);
+            if (value < 0) {
+                throw new NumberFormatException();
+            }
+            return Duration.ofMinutes(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid grace window '" + minutes + "' (expected whole minutes)");
+        }
+    }
+
+    private static SigningContext context(Path dir, Properties properties, String prefix, PemKeys.Loader pemLoader)
+            throws Exception {
+        String kid = properties.getProperty(prefix + "kid", "").trim();
+        String keyFile = properties.getProperty(prefix + "key", "").trim();
+        if (kid.isEmpty() && keyFile.isEmpty()) {
+            return null;
+        }
+        if (kid.isEmpty() || keyFile.isEmpty()) {
+            throw new IllegalArgumentException(prefix + "kid and " + prefix + "key must be set together");
+        }
+        String pem;
+        try {
+            pem = Files.readString(dir.resolve(keyFile), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Can't read key file " + keyFile + ": " + e.getMessage());
+        }
+        try {
+            return SigningContext.create(kid, pemLoader.load(pem));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Key " + keyFile + " can't be used for ES512 signing: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.truelayer.tlsigner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parsing of the comma or newline separated lists used in settings.
+ *
+ * Kept free of the Montoya API so the headless tools can parse signed headers without Burp on the classpath.
+ */
+final class Lists
+{
+    private Lists() {
+    }
+
+    /**
+     * Split on commas and line breaks, trimming each item and dropping empty ones. A null value gives an empty list.
+     */
+    static List<String> split(String value) {
+        List<String> items = new ArrayList<>();
+        if (value == null) {
+            return items;
+        }
+        for (String item : value.split("[,\\r\\n]+")) {
+            String trimmed = item.trim();
+            if (!trimmed.isEmpty()) {
+                items.add(trimmed);
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,69 @@
+package com.truelayer.tlsigner;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Read-only view of {@link SigningMetrics}, refreshed on the EDT once a second while the panel is showing.
+ */
+final class MetricsPanel extends JPanel
+{
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final SigningMetrics metrics;
+    private final JTextArea text = new JTextArea(11, 60);
+    private final Timer timer;
+
+    MetricsPanel(SigningMetrics metrics) {
+        super(new BorderLayout());
+        this.metrics = metrics;
+        setBorder(BorderFactory.createTitledBorder("Metrics"));
+
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, text.getFont().getSize()));
+        add(text, BorderLayout.CENTER);
+
+        JButton resetBtn = new JButton("Reset");
+        resetBtn.addActionListener(e -> {
+            metrics.reset();
+            refresh();
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttons.add(resetBtn);
+        add(buttons, BorderLayout.SOUTH);
+
+        timer = new Timer(REFRESH_MILLIS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        timer.start();
+        refresh();
+    }
+
+    void stop() {
+        timer.stop();
+    }
+
+    private void refresh() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Signed:   %,d (replayed from cache: %,d, presigned: %,d, Intruder pre-signed: %,d)%n",
+                metrics.signed.sum(), metrics.replayed.sum(), metrics.presigned.sum(), metrics.intruderPresigned.sum()));
+        sb.append(String.format("Memo:     %,d hits, %,d misses%n", metrics.memoHits.sum(), metrics.memoMisses.sum()));
+        sb.append(String.format("Failed:   %,d%n", metrics.failed.sum()));
+        sb.append(String.format("Verified: %,d OK, %,d invalid, %,d not checked (queue full)%n",
+                metrics.verified.sum(), metrics.verifyFailed.sum(), metrics.verifyDropped.sum()));
+        for (SigningMetrics.SkipReason reason : SigningMetrics.SkipReason.values()) {
+            sb.append(String.format("Skipped:  %,d (%s)%n", metrics.skippedCount(reason), reason.description));
+        }
+        appendLatency(sb, "Sign", metrics.signLatency);
+        appendLatency(sb, "Rewrite", metrics.rewriteLatency);
+        text.setText(sb.toString());
+    }
+
+    private static void appendLatency(StringBuilder sb, String label, LatencyHistogram histogram) {
+        sb.append(String.format("%-8s  p50 %,dus  p90 %,dus  p99 %,dus  max %,dus%n", label + ":",
+                histogram.percentileMicros(50), histogram.percentileMicros(90),
+                histogram.percentileMicros(99), histogram.maxMicros()));
+    }
+}
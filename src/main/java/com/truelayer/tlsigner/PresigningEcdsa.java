@@ -0,0 +1,270 @@
+package com.truelayer.tlsigner;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ECDSA signing with presignatures: the message-independent part of a signature, the nonce k together with
+ * r = (k·G).x mod n and k⁻¹ mod n, is computed ahead of time on a low-priority background thread and kept in a
+ * bounded pool. Signing a digest then only costs s = k⁻¹(e + r·d) mod n.
+ *
+ * Every presignature is handed out exactly once (it is removed from the queue by the consumer that takes it) and
+ * never reused: signing two messages with the same k would reveal the private key. When the pool is empty
+ * {@link #sign(byte[])} returns null and the caller signs the normal way.
+ *
+ * The scalar multiplication uses a table of 2^i·G so k·G needs only point additions. All of it is plain BigInteger
+ * arithmetic and not constant time: k·G and k⁻¹ on the background thread, and s = k⁻¹(e + r·d) mod n, which involves
+ * the private scalar d, on Burp's request thread for every presigned request. Acceptable for a local testing tool, not
+ * for keys that must resist timing attacks; leave presigning off for those.
+ */
+final class PresigningEcdsa
+{
+    private final SigningContext context;
+    private final Curve curve;
+    private final BigInteger d;
+    private final BlockingQueue<Presignature> pool;
+    private final SecureRandom random = new SecureRandom();
+    private final Thread filler;
+
+    PresigningEcdsa(SigningContext context, int poolSize) {
+        this.context = context;
+        ECPrivateKey key = context.privateKey();
+        this.curve = Curve.of(key.getParams());
+        this.d = key.getS();
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.filler = new Thread(this::fill, "tl-signer-presign");
+        filler.setDaemon(true);
+        filler.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    void start() {
+        filler.start();
+    }
+
+    void stop() {
+        filler.interrupt();
+        pool.clear();
+    }
+
+    /**
+     * The key this engine signs for. Callers must only use it for requests signed with exactly this context.
+     */
+    SigningContext context() {
+        return context;
+    }
+
+    /**
+     * Tl-Signature for a request, or null when no presignature is ready. The signing input is streamed into SHA-512
+     * exactly as {@link SigningContext#sign} streams it into a Signature.
+     */
+    String signRequest(String method, String path, String[] headerNames, String[] headerValues, byte[] body) throws GeneralSecurityException {
+        if (pool.isEmpty()) {
+            return null;
+        }
+        SigningContext.EncodedHeader header = context.encodedHeader(headerNames);
+        MessageDigest digest = MessageDigest.getInstance("SHA-512");
+        DetachedJws.writeSigningInput(header.bytes(), method, path, headerNames, headerValues, body, digest::update);
+        byte[] signature = sign(digest.digest());
+        return signature != null ? DetachedJws.assemble(header.value(), signature) : null;
+    }
+
+    /**
+     * Sign a message digest, returning the signature in JWS (IEEE P1363, r || s) form, or null when no presignature
+     * is ready.
+     */
+    byte[] sign(byte[] digest) {
+        BigInteger e = curve.truncate(digest);
+        Presignature presignature;
+        while ((presignature = pool.poll()) != null) {
+            byte[] signature = sign(e, presignature);
+            if (signature != null) {
+                return signature;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compute a presignature on the calling thread.
+     */
+    Presignature precompute() {
+        while (true) {
+            BigInteger k = new BigInteger(curve.n.bitLength() + 64, random).mod(curve.n.subtract(BigInteger.ONE)).add(BigInteger.ONE);
+            BigInteger r = curve.multiplyG(k).mod(curve.n);
+            if (r.signum() != 0) {
+                return new Presignature(r, k.modInverse(curve.n));
+            }
+        }
+    }
+
+    byte[] sign(byte[] digest, Presignature presignature) {
+        return sign(curve.truncate(digest), presignature);
+    }
+
+    private byte[] sign(BigInteger e, Presignature presignature) {
+        BigInteger s = presignature.kInverse.multiply(e.add(presignature.r.multiply(d))).mod(curve.n);
+        if (s.signum() == 0) {
+            return null;
+        }
+        byte[] signature = new byte[2 * curve.orderBytes];
+        writeFixed(presignature.r, signature, 0, curve.orderBytes);
+        writeFixed(s, signature, curve.orderBytes, curve.orderBytes);
+        return signature;
+    }
+
+    private void fill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Presignature presignature = precompute();
+                // blocks while the pool is full; interrupted by stop()
+                while (!pool.offer(presignature, 1, TimeUnit.SECONDS)) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException ignored) {
+            // stopped
+        }
+    }
+
+    private static void writeFixed(BigInteger value, byte[] out, int offset, int length) {
+        byte[] bytes = value.toByteArray();
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, out, offset + length - copy, copy);
+    }
+
+    record Presignature(BigInteger r, BigInteger kInverse)
+    {
+    }
+
+    /**
+     * Short Weierstrass curve over a prime field with a precomputed table of 2^i·G in affine coordinates.
+     */
+    private static final class Curve
+    {
+        private static final Map<EllipticCurve, Curve> CACHE = new ConcurrentHashMap<>();
+
+        final BigInteger p;
+        final BigInteger a;
+        final BigInteger n;
+        final int orderBytes;
+        private final BigInteger[] tableX;
+        private final BigInteger[] tableY;
+
+        private Curve(ECParameterSpec spec) {
+            if (!(spec.getCurve().getField() instanceof ECFieldFp field)) {
+                throw new IllegalArgumentException("Only prime field curves are supported");
+            }
+            this.p = field.getP();
+            this.a = spec.getCurve().getA().mod(p);
+            this.n = spec.getOrder();
+            this.orderBytes = (n.bitLength() + 7) / 8;
+
+            int bits = n.bitLength();
+            tableX = new BigInteger[bits];
+            tableY = new BigInteger[bits];
+            ECPoint g = spec.getGenerator();
+            BigInteger x = g.getAffineX();
+            BigInteger y = g.getAffineY();
+            for (int i = 0; i < bits; i++) {
+                tableX[i] = x;
+                tableY[i] = y;
+                // affine doubling; only done once per curve
+                BigInteger lambda = x.multiply(x).multiply(BigInteger.valueOf(3)).add(a)
+                        .multiply(y.shiftLeft(1).modInverse(p)).mod(p);
+                BigInteger x2 = lambda.multiply(lambda).subtract(x.shiftLeft(1)).mod(p);
+                y = lambda.multiply(x.subtract(x2)).subtract(y).mod(p);
+                x = x2;
+            }
+        }
+
+        static Curve of(ECParameterSpec spec) {
+            return CACHE.computeIfAbsent(spec.getCurve(), c -> new Curve(spec));
+        }
+
+        /**
+         * Leftmost bits of the digest, as many as the group order has (FIPS 186-4, 6.4).
+         */
+        BigInteger truncate(byte[] digest) {
+            BigInteger e = new BigInteger(1, digest);
+            int excess = digest.length * 8 - n.bitLength();
+            return excess > 0 ? e.shiftRight(excess) : e;
+        }
+
+        /**
+         * Affine x coordinate of k·G, or zero for the point at infinity.
+         */
+        BigInteger multiplyG(BigInteger k) {
+            BigInteger[] point = multiplyGAffine(k);
+            return point != null ? point[0] : BigInteger.ZERO;
+        }
+
+        /**
+         * Affine {x, y} of k·G, or null for the point at infinity, using Jacobian coordinates and mixed additions from
+         * the 2^i·G table.
+         */
+        BigInteger[] multiplyGAffine(BigInteger k) {
+            BigInteger X = null, Y = null, Z = null;
+            for (int i = 0; i < k.bitLength(); i++) {
+                if (!k.testBit(i)) {
+                    continue;
+                }
+                if (Z == null) {
+                    X = tableX[i];
+                    Y = tableY[i];
+                    Z = BigInteger.ONE;
+                    continue;
+                }
+                BigInteger z2 = Z.multiply(Z).mod(p);
+                BigInteger u2 = tableX[i].multiply(z2).mod(p);
+                BigInteger s2 = tableY[i].multiply(z2).multiply(Z).mod(p);
+                BigInteger h = u2.subtract(X).mod(p);
+                BigInteger r = s2.subtract(Y).mod(p);
+                if (h.signum() == 0) {
+                    if (r.signum() != 0) {
+                        X = Y = Z = null; // point at infinity
+                        continue;
+                    }
+                    // same point: double it
+                    BigInteger y2 = Y.multiply(Y).mod(p);
+                    BigInteger s = X.multiply(y2).shiftLeft(2).mod(p);
+                    BigInteger z4 = z2.multiply(z2).mod(p);
+                    BigInteger m = X.multiply(X).multiply(BigInteger.valueOf(3)).add(a.multiply(z4)).mod(p);
+                    BigInteger x3 = m.multiply(m).subtract(s.shiftLeft(1)).mod(p);
+                    BigInteger y3 = m.multiply(s.subtract(x3)).subtract(y2.multiply(y2).shiftLeft(3)).mod(p);
+                    Z = Y.multiply(Z).shiftLeft(1).mod(p);
+                    X = x3;
+                    Y = y3;
+                    continue;
+                }
+                BigInteger h2 = h.multiply(h).mod(p);
+                BigInteger h3 = h2.multiply(h).mod(p);
+                BigInteger xh2 = X.multiply(h2).mod(p);
+                BigInteger x3 = r.multiply(r).subtract(h3).subtract(xh2.shiftLeft(1)).mod(p);
+                BigInteger y3 = r.multiply(xh2.subtract(x3)).subtract(Y.multiply(h3)).mod(p);
+                Z = Z.multiply(h).mod(p);
+                X = x3;
+                Y = y3;
+            }
+            if (Z == null) {
+                return null;
+            }
+            BigInteger zInv = Z.modInverse(p);
+            BigInteger zInv2 = zInv.multiply(zInv).mod(p);
+            return new BigInteger[]{X.multiply(zInv2).mod(p), Y.multiply(zInv2).multiply(zInv).mod(p)};
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.http.HttpService;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiled matcher deciding which outgoing requests are signed.
+ *
+ * A request matches when its host matches one of the host patterns or its URL starts with one of the URL prefixes
+ * (if any are configured), and it is in Burp's target scope (if required). With nothing configured every request
+ * matches, which is the original behaviour of the extension.
+ *
+ * Matching does not allocate: patterns are lower-cased once at compile time and compared in place.
+ */
+final class RequestFilter
+{
+    static final RequestFilter MATCH_ALL = new RequestFilter(new String[0], new String[0], new String[0], false);
+
+    private final String[] exactHosts;
+    // Stored with the leading "*" stripped, i.e. ".truelayer.com"
+    private final String[] hostSuffixes;
+    private final String[] urlPrefixes;
+    private final boolean inScopeOnly;
+
+    private RequestFilter(String[] exactHosts, String[] hostSuffixes, String[] urlPrefixes, boolean inScopeOnly) {
+        this.exactHosts = exactHosts;
+        this.hostSuffixes = hostSuffixes;
+        this.urlPrefixes = urlPrefixes;
+        this.inScopeOnly = inScopeOnly;
+    }
+
+    /**
+     * Compile a filter from comma or newline separated host patterns ("api.truelayer.com", "*.truelayer-sandbox.com")
+     * and URL prefixes ("https://api.truelayer.com/v3/").
+     */
+    static RequestFilter compile(String hostPatterns, String urlPrefixes, boolean inScopeOnly) {
+        List<String> exact = new ArrayList<>();
+        List<String> suffixes = new ArrayList<>();
+        for (String pattern : Lists.split(hostPatterns)) {
+            String p = pattern.toLowerCase(Locale.ROOT);
+            if (p.startsWith("*.")) {
+                String suffix = p.substring(1);
+                if (suffix.indexOf('*') >= 0) {
+                    throw new IllegalArgumentException("Unsupported host pattern: " + pattern);
+                }
+                suffixes.add(suffix);
+            } else if (p.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Unsupported host pattern (only a leading \"*.\" is allowed): " + pattern);
+            } else {
+                exact.add(p);
+            }
+        }
+        List<String> prefixes = Lists.split(urlPrefixes);
+
+        if (exact.isEmpty() && suffixes.isEmpty() && prefixes.isEmpty() && !inScopeOnly) {
+            return MATCH_ALL;
+        }
+        return new RequestFilter(exact.toArray(new String[0]), suffixes.toArray(new String[0]),
+                prefixes.toArray(new String[0]), inScopeOnly);
+    }
+
+    boolean matches(HttpRequest request) {
+        if (this == MATCH_ALL) {
+            return true;
+        }
+        if (exactHosts.length > 0 || hostSuffixes.length > 0 || urlPrefixes.length > 0) {
+            if (!matchesHost(request) && !matchesUrl(request)) {
+                return false;
+            }
+        }
+        return !inScopeOnly || request.isInScope();
+    }
+
+    private boolean matchesHost(HttpRequest request) {
+        if (exactHosts.length == 0 && hostSuffixes.length == 0) {
+            return false;
+        }
+        HttpService service = request.httpService();
+        String host = service != null ? service.host() : null;
+        if (host == null) {
+            return false;
+        }
+        for (String exactHost : exactHosts) {
+            if (exactHost.equalsIgnoreCase(host)) {
+                return true;
+            }
+        }
+        for (String suffix : hostSuffixes) {
+            int offset = host.length() - suffix.length();
+            if (offset > 0 && host.regionMatches(true, offset, suffix, 0, suffix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesUrl(HttpRequest request) {
+        if (urlPrefixes.length == 0) {
+            return false;
+        }
+        String url = request.url();
+        if (url == null) {
+            return false;
+        }
+        for (String prefix : urlPrefixes) {
+            if (url.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
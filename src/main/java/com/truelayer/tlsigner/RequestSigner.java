@@ -0,0 +1,94 @@
+package com.truelayer.tlsigner;
+
+import com.truelayer.signing.Signer;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Montoya-independent core of request signing, shared by the Burp HttpHandler and the headless batch signer.
+ *
+ * Holds the signing options that apply to every request (extra signed headers, whether to keep a caller-supplied
+ * Idempotency-Key, which engine to use) and turns method, path, header values and body into an Idempotency-Key and
+ * Tl-Signature pair. Immutable and safe to share between threads.
+ */
+final class RequestSigner
+{
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String TL_SIGNATURE = "Tl-Signature";
+
+    /**
+     * Headers to put on a signed request.
+     */
+    record Signed(String idempotencyKey, String tlSignature, boolean presigned)
+    {
+    }
+
+    private final SignedHeaders signedHeaders;
+    private final boolean preserveIdempotencyKey;
+    private final boolean useLibrarySigner;
+
+    RequestSigner(SignedHeaders signedHeaders, boolean preserveIdempotencyKey, boolean useLibrarySigner) {
+        this.signedHeaders = signedHeaders;
+        this.preserveIdempotencyKey = preserveIdempotencyKey;
+        this.useLibrarySigner = useLibrarySigner;
+    }
+
+    SignedHeaders signedHeaders() {
+        return signedHeaders;
+    }
+
+    boolean preservesIdempotencyKey() {
+        return preserveIdempotencyKey;
+    }
+
+    /**
+     * Sign a request.
+     *
+     * @param existingIdempotencyKey the request's current Idempotency-Key, or null; only kept when configured to
+     * @param extraValues            values of {@link #signedHeaders()} on the request, null where absent
+     * @param presigner              presigning engine to try first, or null
+     */
+    Signed sign(SigningContext context, PresigningEcdsa presigner, String method, String path,
+                String existingIdempotencyKey, String[] extraValues, byte[] body) throws GeneralSecurityException {
+        String idempotencyKey = preserveIdempotencyKey ? existingIdempotencyKey : null;
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            idempotencyKey = IdempotencyKeys.next();
+        }
+
+        // Idempotency-Key first, then the configured headers this request actually has; missing ones can't be signed
+        int present = 1;
+        for (String value : extraValues) {
+            if (value != null) present++;
+        }
+        String[] headerNames = new String[present];
+        String[] headerValues = new String[present];
+        headerNames[0] = IDEMPOTENCY_KEY;
+        headerValues[0] = idempotencyKey;
+        for (int i = 0, j = 1; i < extraValues.length; i++) {
+            if (extraValues[i] != null) {
+                headerNames[j] = signedHeaders.name(i);
+                headerValues[j++] = extraValues[i];
+            }
+        }
+
+        if (presigner != null && presigner.context() == context) {
+            String tlSignature = presigner.signRequest(method, path, headerNames, headerValues, body);
+            if (tlSignature != null) {
+                return new Signed(idempotencyKey, tlSignature, true);
+            }
+        }
+        if (!useLibrarySigner) {
+            return new Signed(idempotencyKey, context.sign(method, path, headerNames, headerValues, body), false);
+        }
+        Signer signer = Signer.from(context.kid(), context.privateKey());
+        for (int i = 0; i < headerNames.length; i++) {
+            signer = signer.header(headerNames[i], headerValues[i]);
+        }
+        String tlSignature = signer
+                .method(method)
+                .path(path)
+                .body(body)
+                .sign();
+        return new Signed(idempotencyKey, tlSignature, false);
+    }
+}
@@ -0,0 +1,325 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.logging.Logging;
+import burp.api.montoya.persistence.PersistedObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Extension settings stored in the Burp project (Montoya extensionData), as named profiles.
+ *
+ * Reads come from an immutable {@link Settings} snapshot held in memory. {@link #save} swaps the snapshot straight
+ * away and writes to the project on a background thread, debounced so a burst of saves is one write and the EDT never
+ * waits on persistence. A project with no settings yet starts from what older versions kept in java.util.prefs.
+ *
+ * Secret values (the private keys) never go into the project file, which is often shared or attached to tickets. They
+ * are kept in the user's java.util.prefs under a random id the project stores, so the same project opened by another
+ * user or on another machine has the rest of its settings but no keys. Projects written by older versions have their
+ * keys moved out on load.
+ */
+final class SettingsStore
+{
+    static final String DEFAULT_PROFILE = "default";
+
+    // Where settings lived before they moved into the project
+    private static final String LEGACY_PREF_NODE = "com.truelayer.montoya.tlsigner";
+    private static final String KEY_ACTIVE_PROFILE = "active_profile";
+    private static final String PROFILES = "profiles";
+    private static final String KEY_SECRETS_ID = "secrets_id";
+    private static final String SECRETS_NODE = "com/truelayer/tlsigner/secrets";
+    private static final long WRITE_DELAY_MILLIS = 500;
+
+    /**
+     * Immutable settings of one profile. Every value is kept as a string.
+     */
+    static final class Settings
+    {
+        private final Map<String, String> values;
+
+        Settings(Map<String, String> values) {
+            this.values = Map.copyOf(values);
+        }
+
+        String get(String key, String defaultValue) {
+            return values.getOrDefault(key, defaultValue);
+        }
+
+        boolean getBoolean(String key, boolean defaultValue) {
+            String value = values.get(key);
+            return value != null ? Boolean.parseBoolean(value) : defaultValue;
+        }
+
+        Map<String, String> values() {
+            return values;
+        }
+    }
+
+    private final PersistedObject data;
+    private final Logging logging;
+    private final Set<String> secretKeys;
+    private final String secretsId;
+    private final ScheduledExecutorService writer;
+    private final Object lock = new Object();
+    private volatile String activeProfile;
+    private volatile Settings current;
+    // Profiles waiting to be written, by name; guarded by lock
+    private final Map<String, Settings> unwritten = new HashMap<>();
+    // Every profile name, stored or not; guarded by lock
+    private final Set<String> profileNames = new TreeSet<>();
+    private ScheduledFuture<?> pendingWrite;
+
+    /**
+     * Reads the active profile, and the user's preferences for its secrets (or older versions' settings), so not for
+     * the EDT or the extension's initialize.
+     *
+     * @param secretKeys settings kept in the user's preferences instead of the project
+     */
+    SettingsStore(PersistedObject data, Logging logging, Set<String> secretKeys) {
+        this.data = data;
+        this.logging = logging;
+        this.secretKeys = secretKeys;
+        String id = data.getString(KEY_SECRETS_ID);
+        this.secretsId = id != null ? id : UUID.randomUUID().toString();
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tl-signer-settings");
+            t.setDaemon(true);
+            return t;
+        });
+
+        String active = data.getString(KEY_ACTIVE_PROFILE);
+        PersistedObject profiles = data.getChildObject(PROFILES);
+        if (active == null || profiles == null || profiles.getChildObject(active) == null) {
+            active = DEFAULT_PROFILE;
+            Settings imported = new Settings(legacyPreferences());
+            synchronized (lock) {
+                unwritten.put(active, imported);
+            }
+            this.current = imported;
+            scheduleWrite();
+        } else {
+            this.current = read(active, profiles.getChildObject(active));
+        }
+        this.activeProfile = active;
+        synchronized (lock) {
+            if (profiles != null) {
+                profileNames.addAll(profiles.childObjectKeys());
+            }
+            profileNames.add(active);
+        }
+        if (profiles != null) {
+            migrateSecrets(profiles);
+        }
+    }
+
+    Settings settings() {
+        return current;
+    }
+
+    String activeProfile() {
+        return activeProfile;
+    }
+
+    /**
+     * Names of the profiles in this project, including ones not written yet, in order. Kept in memory, so cheap enough
+     * for the EDT.
+     */
+    List<String> profiles() {
+        synchronized (lock) {
+            return new ArrayList<>(profileNames);
+        }
+    }
+
+    /**
+     * Replace the active profile's settings. Returns immediately; the project is written shortly afterwards.
+     */
+    void save(Map<String, String> values) {
+        Settings settings = new Settings(values);
+        current = settings;
+        synchronized (lock) {
+            unwritten.put(activeProfile, settings);
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Make another profile active, creating it as a copy of the current settings if it doesn't exist. Reads the
+     * project and the user's preferences, so not for the EDT.
+     */
+    Settings switchTo(String profile) {
+        Settings settings;
+        synchronized (lock) {
+            settings = unwritten.get(profile);
+        }
+        if (settings == null) {
+            PersistedObject profiles = data.getChildObject(PROFILES);
+            PersistedObject stored = profiles != null ? profiles.getChildObject(profile) : null;
+            settings = stored != null ? read(profile, stored) : current;
+        }
+        synchronized (lock) {
+            unwritten.put(profile, settings);
+            profileNames.add(profile);
+        }
+        activeProfile = profile;
+        current = settings;
+        scheduleWrite();
+        return settings;
+    }
+
+    /**
+     * Write anything still pending and stop the writer thread. Called on unload.
+     */
+    void close() {
+        writer.shutdown();
+        synchronized (lock) {
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+            }
+        }
+        write();
+    }
+
+    private void scheduleWrite() {
+        synchronized (lock) {
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+            }
+            if (!writer.isShutdown()) {
+                pendingWrite = writer.schedule(this::write, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void write() {
+        Map<String, Settings> toWrite;
+        synchronized (lock) {
+            toWrite = new HashMap<>(unwritten);
+            unwritten.clear();
+            pendingWrite = null;
+        }
+        try {
+            PersistedObject profiles = data.getChildObject(PROFILES);
+            if (profiles == null) {
+                profiles = PersistedObject.persistedObject();
+            }
+            for (Map.Entry<String, Settings> entry : toWrite.entrySet()) {
+                PersistedObject profile = PersistedObject.persistedObject();
+                Preferences secrets = secrets(entry.getKey());
+                Map<String, String> values = entry.getValue().values();
+                values.forEach((key, value) -> {
+                    if (!secretKeys.contains(key)) {
+                        profile.setString(key, value);
+                    }
+                });
+                for (String key : secretKeys) {
+                    String value = values.getOrDefault(key, "");
+                    if (value.isEmpty()) {
+                        secrets.remove(key);
+                    } else {
+                        secrets.put(key, value);
+                    }
+                }
+                secrets.flush();
+                profiles.setChildObject(entry.getKey(), profile);
+            }
+            data.setChildObject(PROFILES, profiles);
+            data.setString(KEY_ACTIVE_PROFILE, activeProfile);
+            data.setString(KEY_SECRETS_ID, secretsId);
+        } catch (RuntimeException | BackingStoreException e) {
+            logging.logToError("TrueLayer Tl-Signature: failed to save settings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A stored profile's values, with its secrets from the user's preferences. Secrets still in the project (written
+     * by an older version) are used as well, until {@link #migrateSecrets} moves them.
+     */
+    private Settings read(String name, PersistedObject profile) {
+        Map<String, String> values = new HashMap<>();
+        try {
+            Preferences secrets = secrets(name);
+            for (String key : secretKeys) {
+                String value = secrets.get(key, null);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        } catch (IllegalStateException e) {
+            logging.logToError("TrueLayer Tl-Signature: could not read keys from Java preferences: " + e.getMessage());
+        }
+        for (String key : profile.stringKeys()) {
+            String value = profile.getString(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return new Settings(values);
+    }
+
+    /**
+     * Rewrite every profile that still has secrets in the project, so they move to the user's preferences.
+     */
+    private void migrateSecrets(PersistedObject profiles) {
+        boolean migrate = false;
+        for (String name : profiles.childObjectKeys()) {
+            PersistedObject profile = profiles.getChildObject(name);
+            if (profile != null && profile.stringKeys().stream().anyMatch(secretKeys::contains)) {
+                Settings settings = read(name, profile);
+                synchronized (lock) {
+                    unwritten.putIfAbsent(name, settings);
+                }
+                migrate = true;
+            }
+        }
+        if (migrate) {
+            scheduleWrite();
+        }
+    }
+
+    /**
+     * Preferences node holding one profile's secrets. Profile names are hashed: node names can't contain '/' and are
+     * limited to 80 characters.
+     */
+    private Preferences secrets(String profile) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(profile.getBytes(StandardCharsets.UTF_8));
+            return Preferences.userRoot().node(SECRETS_NODE + "/" + secretsId + "/" + HexFormat.of().formatHex(hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, String> legacyPreferences() {
+        Map<String, String> values = new HashMap<>();
+        try {
+            if (!Preferences.userRoot().nodeExists(LEGACY_PREF_NODE)) {
+                return values;
+            }
+            Preferences prefs = Preferences.userRoot().node(LEGACY_PREF_NODE);
+            for (String key : prefs.keys()) {
+                String value = prefs.get(key, null);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        } catch (BackingStoreException | IllegalStateException e) {
+            logging.logToError("TrueLayer Tl-Signature: could not import settings from Java preferences: " + e.getMessage());
+        }
+        return values;
+    }
+}
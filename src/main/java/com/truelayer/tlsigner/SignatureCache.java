@@ -0,0 +1,129 @@
+package com.truelayer.tlsigner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of Tl-Signatures by everything they cover, so a byte-identical request is not signed again.
+ *
+ * Only useful when the request brings its own Idempotency-Key: otherwise every request gets a fresh key and no two
+ * signing inputs are the same. Entries are keyed by a SHA-256 digest of kid, method, path, Idempotency-Key, the extra
+ * signed header values and the body, which is far cheaper than an ES512 signature and keeps bodies out of memory.
+ * The map is split into segments by key hash so concurrent Scanner threads rarely wait on each other; each segment
+ * evicts its least recently used entries, and entries older than the TTL are treated as missing.
+ */
+final class SignatureCache
+{
+    private static final int SEGMENTS = 16;
+
+    /**
+     * Digest of one signing input.
+     */
+    record Key(long a, long b, long c, long d)
+    {
+    }
+
+    private record Entry(String tlSignature, long expiresAtNanos)
+    {
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+
+    /**
+     * @param maxEntries total entries kept across all segments
+     * @param ttlSeconds how long a signature is reused
+     */
+    SignatureCache(int maxEntries, long ttlSeconds) {
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+    }
+
+    static Key key(String kid, String method, String path, String idempotencyKey, String[] headerValues, byte[] body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, kid.getBytes(StandardCharsets.UTF_8));
+        update(digest, method.getBytes(StandardCharsets.UTF_8));
+        update(digest, path.getBytes(StandardCharsets.UTF_8));
+        update(digest, idempotencyKey.getBytes(StandardCharsets.UTF_8));
+        for (String value : headerValues) {
+            // a configured header the request doesn't have; signed differently from an empty value
+            update(digest, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+        }
+        update(digest, body);
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new Key(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * The signature cached for {@code key}, or null if there is none or it has expired.
+     */
+    String get(Key key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.expiresAtNanos > 0) {
+                segment.remove(key);
+                return null;
+            }
+            return entry.tlSignature;
+        }
+    }
+
+    void put(Key key, String tlSignature) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new Entry(tlSignature, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        return segments[(int) (key.a & (SEGMENTS - 1))];
+    }
+
+    // Length-prefixed, so field boundaries can't shift between two different inputs; null is length -1, which no
+    // value (not even an empty one) has
+    private static void update(MessageDigest digest, byte[] bytes) {
+        digest.update(ByteBuffer.allocate(4).putInt(bytes != null ? bytes.length : -1).array());
+        if (bytes != null) {
+            digest.update(bytes);
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, Entry>
+    {
+        private final int maxEntries;
+
+        Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.truelayer.tlsigner;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Checks a Tl-Signature (tl_version 2 detached JWS) against the method, path, headers and body it claims to cover.
+ * The signing input is rebuilt with {@link DetachedJws}, so it matches what this extension and the truelayer-signing
+ * library sign byte for byte.
+ *
+ * When a signature doesn't match, a few likely variants of the request are tried (path without the query string or
+ * with the trailing slash toggled, empty body) so the result can say what probably changed after signing.
+ */
+final class SignatureVerifier
+{
+    /**
+     * Public keys by kid, e.g. a {@link JwksCache}.
+     */
+    interface KeyLookup
+    {
+        ECPublicKey get(String kid) throws Exception;
+    }
+
+    record Result(boolean valid, String message)
+    {
+        static Result invalid(String message) {
+            return new Result(false, message);
+        }
+    }
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final KeyLookup keys;
+
+    SignatureVerifier(KeyLookup keys) {
+        this.keys = keys;
+    }
+
+    KeyLookup keys() {
+        return keys;
+    }
+
+    /**
+     * @param headers the message's headers keyed by lower-cased name
+     */
+    Result verify(String tlSignature, String method, String path, Map<String, String> headers, byte[] body) {
+        int separator = tlSignature.indexOf("..");
+        if (separator <= 0 || tlSignature.indexOf('.', separator + 2) >= 0) {
+            return Result.invalid("not a detached JWS");
+        }
+        String encodedHeader = tlSignature.substring(0, separator);
+        try {
+            if (!(Json.parse(new String(Base64.getUrlDecoder().decode(encodedHeader), StandardCharsets.UTF_8)) instanceof Map<?, ?> header)) {
+                return Result.invalid("JWS header is not a JSON object");
+            }
+            if (!"ES512".equals(header.get("alg"))) {
+                return Result.invalid("unsupported alg " + header.get("alg"));
+            }
+            if (!"2".equals(header.get("tl_version"))) {
+                return Result.invalid("unsupported tl_version " + header.get("tl_version"));
+            }
+            if (!(header.get("kid") instanceof String kid)) {
+                return Result.invalid("JWS header has no kid");
+            }
+            ECPublicKey key = keys.get(kid);
+            if (key == null) {
+                return Result.invalid("no key for kid " + kid);
+            }
+
+            String tlHeaders = header.get("tl_headers") instanceof String list ? list : "";
+            String[] names = tlHeaders.isEmpty() ? new String[0] : tlHeaders.split(",");
+            String[] values = new String[names.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = names[i].trim();
+                values[i] = headers.get(names[i].toLowerCase(Locale.ROOT));
+                if (values[i] == null) {
+                    return Result.invalid("signed header " + names[i] + " is missing");
+                }
+            }
+
+            Check check = new Check(key, encodedHeader.getBytes(StandardCharsets.US_ASCII), names, values,
+                    Base64.getUrlDecoder().decode(tlSignature.substring(separator + 2)));
+            if (check.matches(method, path, body)) {
+                return new Result(true, "verified with kid " + kid);
+            }
+            return Result.invalid(diagnose(check, method, path, body) + " (kid " + kid + ")");
+        } catch (Exception e) {
+            return Result.invalid(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private static String diagnose(Check check, String method, String path, byte[] body) throws GeneralSecurityException {
+        int query = path.indexOf('?');
+        String pathOnly = query >= 0 ? path.substring(0, query) : path;
+        String queryPart = query >= 0 ? path.substring(query) : "";
+        String toggledSlash = pathOnly.endsWith("/") && pathOnly.length() > 1
+                ? pathOnly.substring(0, pathOnly.length() - 1) : pathOnly + "/";
+
+        if (query >= 0 && check.matches(method, pathOnly, body)) {
+            return "signed without the query string; sent with " + queryPart;
+        }
+        if (check.matches(method, toggledSlash + queryPart, body)) {
+            return "signed for path " + toggledSlash + queryPart + " but sent to " + path;
+        }
+        if (body.length > 0 && check.matches(method, path, EMPTY_BODY)) {
+            return "signed with an empty body; the body was set after signing";
+        }
+        return "signature does not match: the body or a signed header changed after signing, or a different key signed it";
+    }
+
+    /**
+     * One signature checked against variants of the request.
+     */
+    private record Check(ECPublicKey key, byte[] encodedHeader, String[] names, String[] values, byte[] signature)
+    {
+        boolean matches(String method, String path, byte[] body) throws GeneralSecurityException {
+            Signature verifier = Signature.getInstance(SigningContext.JCA_ALGORITHM);
+            verifier.initVerify(key);
+            DetachedJws.writeSigningInput(encodedHeader, method, path, names, values, body, verifier::update);
+            return verifier.verify(signature);
+        }
+    }
+}
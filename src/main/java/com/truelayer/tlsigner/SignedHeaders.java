@@ -0,0 +1,83 @@
+package com.truelayer.tlsigner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extra request headers to include in Tl-Signature alongside Idempotency-Key, e.g. "X-Bar-Header".
+ *
+ * Names are lower-cased once when the configuration is saved. Per request the caller indexes the header list by
+ * lower-cased name in a single pass, so looking up each configured header doesn't rescan the request.
+ */
+final class SignedHeaders
+{
+    static final SignedHeaders NONE = new SignedHeaders(new String[0]);
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final String[] names;
+    private final String[] lowerNames;
+
+    private SignedHeaders(String[] names) {
+        this.names = names;
+        this.lowerNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            lowerNames[i] = names[i].toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Parse a comma or newline separated list of header names. Idempotency-Key is always signed, so it is dropped here.
+     */
+    static SignedHeaders parse(String value) {
+        Set<String> seen = new LinkedHashSet<>();
+        List<String> names = new ArrayList<>();
+        for (String name : Lists.split(value)) {
+            if (name.indexOf(':') >= 0 || name.indexOf(' ') >= 0) {
+                throw new IllegalArgumentException("Invalid header name: " + name);
+            }
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (lower.equals("idempotency-key") || lower.equals("tl-signature") || !seen.add(lower)) {
+                continue;
+            }
+            names.add(name);
+        }
+        return names.isEmpty() ? NONE : new SignedHeaders(names.toArray(new String[0]));
+    }
+
+    boolean isEmpty() {
+        return names.length == 0;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int i) {
+        return names[i];
+    }
+
+    /**
+     * Values of the configured headers, in configuration order; null where the request lacks one.
+     *
+     * @param index the request's headers keyed by lower-cased name (first occurrence wins)
+     */
+    String[] valuesFrom(Map<String, String> index) {
+        if (names.length == 0) {
+            return NO_VALUES;
+        }
+        String[] values = new String[names.length];
+        for (int i = 0; i < lowerNames.length; i++) {
+            values[i] = index.get(lowerNames[i]);
+        }
+        return values;
+    }
+
+    String format() {
+        return String.join(", ", names);
+    }
+}
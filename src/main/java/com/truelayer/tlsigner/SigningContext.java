@@ -0,0 +1,163 @@
+package com.truelayer.tlsigner;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+
+/**
+ * Immutable kid/private key pair used to sign a request, plus the per-key state the built-in signing engine reuses.
+ *
+ * The hot path reads a single reference to one of these, so a request racing a settings save is always signed with a
+ * matching kid and key. Instances are only created for P-521 keys that JCA can sign with, the only curve ES512 allows,
+ * which moves key problems from the first signed request to the Save button.
+ *
+ * {@link #sign} produces the same Tl-Signature as the truelayer-signing Signer, but resolves the JCA provider once,
+ * keeps one initialised Signature per thread, caches the encoded protected header for the last tl_headers set and
+ * streams the signing input into the Signature without building it as a String.
+ */
+final class SigningContext
+{
+    static final String JCA_ALGORITHM = "SHA512withECDSAinP1363Format";
+    private static final int ES512_ORDER_BITS = 521;
+
+    private final String kid;
+    private final ECPrivateKey privateKey;
+    private final Provider provider;
+    private final ThreadLocal<Signature> signatures;
+    private volatile EncodedHeader lastHeader;
+    private volatile ECPublicKey publicKey;
+
+    private SigningContext(String kid, ECPrivateKey privateKey, Provider provider) {
+        this.kid = kid;
+        this.privateKey = privateKey;
+        this.provider = provider;
+        this.signatures = ThreadLocal.withInitial(this::newSignature);
+    }
+
+    /**
+     * Build a context, or return null when either the kid or the key is missing.
+     *
+     * @throws InvalidKeyException if the key is not on P-521, so an ES512 header would be a lie
+     */
+    static SigningContext create(String kid, ECPrivateKey privateKey) throws GeneralSecurityException {
+        if (kid == null || kid.isEmpty() || privateKey == null) {
+            return null;
+        }
+        int orderBits = privateKey.getParams().getOrder().bitLength();
+        if (orderBits != ES512_ORDER_BITS) {
+            throw new InvalidKeyException("ES512 needs a P-521 key, this key is on a " + orderBits + "-bit curve");
+        }
+        Signature probe = Signature.getInstance(JCA_ALGORITHM);
+        probe.initSign(privateKey);
+        return new SigningContext(kid, privateKey, probe.getProvider());
+    }
+
+    String kid() {
+        return kid;
+    }
+
+    ECPrivateKey privateKey() {
+        return privateKey;
+    }
+
+    /**
+     * The public half of the key, e.g. to verify signatures made with a configured key that has no JWKS entry. Derived
+     * on first use.
+     */
+    ECPublicKey publicKey() throws GeneralSecurityException {
+        ECPublicKey key = publicKey;
+        if (key == null) {
+            key = derivePublicKey(privateKey);
+            publicKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * JCA has no call that turns a private key into its public key, so this has the JDK's EC key pair generator compute
+     * d·G, with its own constant-time point multiplication, from a SecureRandom that hands it d.
+     *
+     * That relies on an implementation detail of SunEC's ECKeyPairGenerator (checked against JDK 21): it fills one
+     * array of (bits of n + 64) / 8 bytes with nextBytes, reads it little-endian and reduces it mod n, which leaves d
+     * unchanged. Nothing in JCA promises this. The generated private key is compared with ours, so a provider
+     * that consumes randomness differently fails here with an InvalidKeyException instead of producing a wrong public
+     * key; SigningContextTest checks the derivation on P-256, P-384 and P-521, the curves PemKeys reads.
+     */
+    static ECPublicKey derivePublicKey(ECPrivateKey privateKey) throws GeneralSecurityException {
+        byte[] scalar = privateKey.getS().toByteArray();
+        SecureRandom seed = new SecureRandom() {
+            @Override
+            public void nextBytes(byte[] bytes) {
+                Arrays.fill(bytes, (byte) 0);
+                for (int i = 0; i < Math.min(scalar.length, bytes.length); i++) {
+                    bytes[i] = scalar[scalar.length - 1 - i];
+                }
+            }
+        };
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(privateKey.getParams(), seed);
+            KeyPair pair = generator.generateKeyPair();
+            if (!((ECPrivateKey) pair.getPrivate()).getS().equals(privateKey.getS())) {
+                throw new InvalidKeyException("Can't derive the public key with this JDK, add the key to the verification JWKS instead");
+            }
+            return (ECPublicKey) pair.getPublic();
+        } finally {
+            Arrays.fill(scalar, (byte) 0);
+        }
+    }
+
+    /**
+     * Tl-Signature for a request whose signed headers are headerNames/headerValues (Idempotency-Key included).
+     */
+    String sign(String method, String path, String[] headerNames, String[] headerValues, byte[] body) throws GeneralSecurityException {
+        EncodedHeader header = encodedHeader(headerNames);
+        Signature signature = signatures.get();
+        try {
+            DetachedJws.writeSigningInput(header.bytes, method, path, headerNames, headerValues, body, signature::update);
+            // sign() resets the Signature, leaving it ready for this thread's next request
+            return DetachedJws.assemble(header.value, signature.sign());
+        } catch (GeneralSecurityException | RuntimeException e) {
+            // don't let a half-fed Signature leak into the next request on this thread
+            signatures.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * Encoded protected header for this kid and header set. Requests almost always sign the same header names, so the
+     * last one is kept and rebuilt only when the set changes.
+     */
+    EncodedHeader encodedHeader(String[] headerNames) {
+        EncodedHeader header = lastHeader;
+        if (header == null || !Arrays.equals(header.headerNames, headerNames)) {
+            String value = DetachedJws.encodedHeader(kid, headerNames);
+            header = new EncodedHeader(headerNames.clone(), value, value.getBytes(StandardCharsets.US_ASCII));
+            lastHeader = header;
+        }
+        return header;
+    }
+
+    private Signature newSignature() {
+        try {
+            Signature signature = Signature.getInstance(JCA_ALGORITHM, provider);
+            signature.initSign(privateKey);
+            return signature;
+        } catch (GeneralSecurityException e) {
+            // create() already initialised a Signature for this key with this provider
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record EncodedHeader(String[] headerNames, String value, byte[] bytes)
+    {
+    }
+}
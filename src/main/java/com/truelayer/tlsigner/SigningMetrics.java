@@ -0,0 +1,78 @@
+package com.truelayer.tlsigner;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the request path. Everything here is safe to update from Burp's HTTP threads
+ * without locking.
+ */
+final class SigningMetrics
+{
+    enum SkipReason
+    {
+        FILTERED("not matched by host/URL/scope filter"),
+        TOOL_POLICY("tool set to pass through"),
+        NO_KID("no certificate id"),
+        NO_KEY("no usable private key");
+
+        final String description;
+
+        SkipReason(String description) {
+            this.description = description;
+        }
+    }
+
+    final LongAdder signed = new LongAdder();
+    final LongAdder replayed = new LongAdder();
+    /** Signed using a precomputed ECDSA nonce. */
+    final LongAdder presigned = new LongAdder();
+    /** Intruder requests whose signature was computed ahead of the attack. */
+    final LongAdder intruderPresigned = new LongAdder();
+    /** Lookups in the signature memo; hits skip ECDSA entirely. */
+    final LongAdder memoHits = new LongAdder();
+    final LongAdder memoMisses = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    /** Outcomes of Tl-Signature verification on responses and proxied webhooks. */
+    final LongAdder verified = new LongAdder();
+    final LongAdder verifyFailed = new LongAdder();
+    /** Not verified because the verification queue was full. */
+    final LongAdder verifyDropped = new LongAdder();
+    private final LongAdder[] skipped = new LongAdder[SkipReason.values().length];
+
+    /** Time spent computing Tl-Signature. */
+    final LatencyHistogram signLatency = new LatencyHistogram();
+    /** Time spent rewriting the request headers. */
+    final LatencyHistogram rewriteLatency = new LatencyHistogram();
+
+    SigningMetrics() {
+        for (int i = 0; i < skipped.length; i++) {
+            skipped[i] = new LongAdder();
+        }
+    }
+
+    void skipped(SkipReason reason) {
+        skipped[reason.ordinal()].increment();
+    }
+
+    long skippedCount(SkipReason reason) {
+        return skipped[reason.ordinal()].sum();
+    }
+
+    void reset() {
+        signed.reset();
+        replayed.reset();
+        presigned.reset();
+        intruderPresigned.reset();
+        memoHits.reset();
+        memoMisses.reset();
+        failed.reset();
+        verified.reset();
+        verifyFailed.reset();
+        verifyDropped.reset();
+        for (LongAdder adder : skipped) {
+            adder.reset();
+        }
+        signLatency.reset();
+        rewriteLatency.reset();
+    }
+}
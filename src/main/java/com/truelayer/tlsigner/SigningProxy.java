@@ -0,0 +1,433 @@
+package com.truelayer.tlsigner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Standalone signing HTTP proxy for load generators that can't sign requests themselves.
+ *
+ * <pre>
+ * java -cp truelayer-signing.jar com.truelayer.tlsigner.SigningProxy \
+ *     --kid KID --key private.pem [--port 8089] [--bind 127.0.0.1] [--upstream https://api.truelayer-sandbox.com] \
+ *     [--sign-header NAME]... [--preserve-idempotency-key] [--presign]
+ * </pre>
+ *
+ * Clients either use it as a plain HTTP forward proxy (absolute-form request targets, e.g. http_proxy=...) or, with
+ * --upstream, send ordinary requests to it and have them forwarded to the upstream base URL, which may be HTTPS.
+ * CONNECT tunnels are refused: requests inside a TLS tunnel can't be signed.
+ *
+ * Each client connection is served by a virtual thread that reads HTTP/1.1 requests with keep-alive, signs them with
+ * {@link RequestSigner} exactly as the Burp handler does, and forwards them through a shared HttpClient, which keeps a
+ * pool of persistent upstream connections. Blocking reads and upstream calls only park the virtual thread. Bodies are
+ * buffered to be signed, so they are capped at 16 MB.
+ */
+public final class SigningProxy
+{
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024;
+    private static final int PRESIGN_POOL_SIZE = 4096;
+
+    // set by HttpClient itself, or hop-by-hop and not to be forwarded
+    private static final Set<String> DROPPED_REQUEST_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "upgrade", "keep-alive", "proxy-connection",
+            "proxy-authorization", "te", "trailer", "transfer-encoding");
+    private static final Set<String> DROPPED_RESPONSE_HEADERS = Set.of(
+            "connection", "content-length", "keep-alive", "transfer-encoding", "trailer", "upgrade");
+
+    private final SigningContext context;
+    private final RequestSigner signer;
+    private final PresigningEcdsa presigner;
+    private final URI upstream;
+    private final HttpClient client;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder signed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    SigningProxy(SigningContext context, RequestSigner signer, PresigningEcdsa presigner, URI upstream) {
+        this.context = context;
+        this.signer = signer;
+        this.presigner = presigner;
+        this.upstream = upstream;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(connections)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String kid = null, keyFile = null, bind = "127.0.0.1";
+        int port = 8089;
+        URI upstream = null;
+        List<String> signHeaders = new ArrayList<>();
+        boolean preserveIdempotencyKey = false, presign = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--kid" -> kid = argument(args, ++i);
+                case "--key" -> keyFile = argument(args, ++i);
+                case "--port" -> port = Integer.parseInt(argument(args, ++i));
+                case "--bind" -> bind = argument(args, ++i);
+                case "--upstream" -> upstream = URI.create(argument(args, ++i));
+                case "--sign-header" -> signHeaders.add(argument(args, ++i));
+                case "--preserve-idempotency-key" -> preserveIdempotencyKey = true;
+                case "--presign" -> presign = true;
+                default -> usage("unknown option " + args[i]);
+            }
+        }
+        if (kid == null || keyFile == null) {
+            usage("--kid and --key are required");
+        }
+
+        String pem = Files.readString(Path.of(keyFile), StandardCharsets.UTF_8);
+        SigningContext context = SigningContext.create(kid, PemKeys.loadEcPrivateKey(pem));
+        RequestSigner signer = new RequestSigner(SignedHeaders.parse(String.join(",", signHeaders)), preserveIdempotencyKey, false);
+        PresigningEcdsa presigner = null;
+        if (presign) {
+            presigner = new PresigningEcdsa(context, PRESIGN_POOL_SIZE);
+            presigner.start();
+        }
+
+        SigningProxy proxy = new SigningProxy(context, signer, presigner, upstream);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.printf(
+                "Signing proxy: %d requests signed, %d failed%n", proxy.signedCount(), proxy.failedCount())));
+        try (ServerSocket server = new ServerSocket()) {
+            server.bind(new InetSocketAddress(InetAddress.getByName(bind), port), 1024);
+            System.err.printf("Signing proxy listening on %s:%d%s%n", bind, server.getLocalPort(),
+                    upstream != null ? ", forwarding to " + upstream : "");
+            proxy.serve(server);
+        }
+    }
+
+    /**
+     * Accept connections until the server socket is closed.
+     */
+    void serve(ServerSocket server) throws IOException {
+        try {
+            while (!server.isClosed()) {
+                Socket socket = server.accept();
+                connections.execute(() -> handleConnection(socket));
+            }
+        } finally {
+            connections.shutdownNow();
+            if (presigner != null) {
+                presigner.stop();
+            }
+        }
+    }
+
+    long signedCount() {
+        return signed.sum();
+    }
+
+    long failedCount() {
+        return failed.sum();
+    }
+
+    private void handleConnection(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+            while (true) {
+                String requestLine = readLine(in);
+                if (requestLine == null) {
+                    return;
+                }
+                if (requestLine.isEmpty()) {
+                    continue; // tolerate a stray CRLF between requests
+                }
+                if (!handleRequest(requestLine, in, out)) {
+                    return;
+                }
+            }
+        } catch (IOException ignored) {
+            // client went away or sent something unparseable; nothing more to do on this connection
+        }
+    }
+
+    /**
+     * Read, sign, forward and answer one request. Returns false when the connection should be closed.
+     */
+    private boolean handleRequest(String requestLine, InputStream in, OutputStream out) throws IOException {
+        String[] parts = requestLine.split(" ", 3);
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/1.")) {
+            writeError(out, 400, "Malformed request line");
+            return false;
+        }
+        String method = parts[0];
+        String target = parts[1];
+        boolean http10 = parts[2].equals("HTTP/1.0");
+
+        List<String[]> headers = new ArrayList<>();
+        Map<String, String> index = new HashMap<>();
+        int headerBytes = 0;
+        String line;
+        while (!(line = requireLine(in)).isEmpty()) {
+            headerBytes += line.length();
+            int colon = line.indexOf(':');
+            if (colon <= 0 || headerBytes > MAX_HEADER_BYTES) {
+                writeError(out, 400, "Malformed header");
+                return false;
+            }
+            String name = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            headers.add(new String[]{name, value});
+            index.putIfAbsent(name.toLowerCase(Locale.ROOT), value);
+        }
+
+        String connection = index.getOrDefault("connection", index.getOrDefault("proxy-connection", ""));
+        boolean keepAlive = http10 ? connection.equalsIgnoreCase("keep-alive") : !connection.equalsIgnoreCase("close");
+
+        byte[] body;
+        try {
+            body = readBody(in, index);
+        } catch (BadRequestException e) {
+            // the rest of the stream can't be framed, so the connection goes too
+            writeError(out, e.status, e.getMessage());
+            return false;
+        }
+        if (method.equals("CONNECT")) {
+            writeError(out, 405, "CONNECT is not supported: requests inside a TLS tunnel can't be signed");
+            return false;
+        }
+
+        URI uri;
+        try {
+            uri = resolve(target);
+        } catch (IllegalArgumentException e) {
+            writeError(out, 400, e.getMessage());
+            return keepAlive;
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            String path = uri.getRawQuery() != null ? uri.getRawPath() + "?" + uri.getRawQuery() : uri.getRawPath();
+            String[] extraValues = signer.signedHeaders().valuesFrom(index);
+            String existingKey = index.get("idempotency-key");
+            RequestSigner.Signed result = signer.sign(context, presigner, method, path, existingKey, extraValues, body);
+
+            HttpRequest.Builder upstreamRequest = HttpRequest.newBuilder(uri)
+                    .method(method, body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+            for (String[] header : headers) {
+                String lower = header[0].toLowerCase(Locale.ROOT);
+                if (!DROPPED_REQUEST_HEADERS.contains(lower) && !lower.equals("idempotency-key") && !lower.equals("tl-signature")) {
+                    upstreamRequest.header(header[0], header[1]);
+                }
+            }
+            upstreamRequest.header(RequestSigner.IDEMPOTENCY_KEY, result.idempotencyKey());
+            upstreamRequest.header(RequestSigner.TL_SIGNATURE, result.tlSignature());
+            signed.increment();
+
+            response = client.send(upstreamRequest.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            failed.increment();
+            writeError(out, 502, "Signing proxy: " + e);
+            return keepAlive;
+        }
+
+        writeResponse(out, method, response, keepAlive);
+        return keepAlive;
+    }
+
+    private URI resolve(String target) {
+        if (target.startsWith("http://") || target.startsWith("https://")) {
+            URI uri = URI.create(target);
+            if (upstream == null) {
+                return uri;
+            }
+            target = uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        }
+        if (upstream == null) {
+            throw new IllegalArgumentException("Expected an absolute URL; start the proxy with --upstream to accept paths");
+        }
+        if (!target.startsWith("/")) {
+            throw new IllegalArgumentException("Invalid request target");
+        }
+        String base = upstream.toString();
+        return URI.create(base.endsWith("/") ? base.substring(0, base.length() - 1) + target : base + target);
+    }
+
+    private static byte[] readBody(InputStream in, Map<String, String> index) throws IOException {
+        String transferEncoding = index.get("transfer-encoding");
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String sizeLine = requireLine(in);
+                int semicolon = sizeLine.indexOf(';');
+                long size = parseLength((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16, "chunk size");
+                if (size > MAX_BODY_BYTES - body.size()) {
+                    throw new BadRequestException(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+                }
+                if (size == 0) {
+                    while (!requireLine(in).isEmpty()) {
+                        // discard trailers
+                    }
+                    return body.toByteArray();
+                }
+                byte[] chunk = in.readNBytes((int) size);
+                if (chunk.length != size) {
+                    throw new EOFException("Truncated request body");
+                }
+                body.write(chunk);
+                requireLine(in);
+            }
+        }
+        String contentLength = index.get("content-length");
+        if (contentLength == null) {
+            return new byte[0];
+        }
+        long length = parseLength(contentLength.trim(), 10, "Content-Length");
+        if (length > MAX_BODY_BYTES) {
+            throw new BadRequestException(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        byte[] body = in.readNBytes((int) length);
+        if (body.length != length) {
+            throw new EOFException("Truncated request body");
+        }
+        return body;
+    }
+
+    /**
+     * A non-negative Content-Length or chunk size.
+     */
+    private static long parseLength(String value, int radix, String what) throws BadRequestException {
+        try {
+            long length = Long.parseLong(value, radix);
+            if (length >= 0 && value.charAt(0) != '+') {
+                return length;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below, like a negative length
+        }
+        throw new BadRequestException(400, "Invalid " + what + ": " + value);
+    }
+
+    private static void writeResponse(OutputStream out, String method, HttpResponse<byte[]> response, boolean keepAlive) throws IOException {
+        byte[] body = response.body();
+        StringBuilder head = new StringBuilder(512);
+        head.append("HTTP/1.1 ").append(response.statusCode()).append(" \r\n");
+        String upstreamLength = null;
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            String lower = header.getKey().toLowerCase(Locale.ROOT);
+            if (lower.equals("content-length")) {
+                upstreamLength = header.getValue().isEmpty() ? null : header.getValue().get(0);
+            }
+            if (lower.startsWith(":") || DROPPED_RESPONSE_HEADERS.contains(lower)) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        // a HEAD response describes the body it didn't send
+        String length = method.equals("HEAD") && upstreamLength != null ? upstreamLength : Integer.toString(body.length);
+        head.append("Content-Length: ").append(length).append("\r\n");
+        head.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n");
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (!method.equals("HEAD")) {
+            out.write(body);
+        }
+        out.flush();
+    }
+
+    private static void writeError(OutputStream out, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " \r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: "
+                + body.length + "\r\n\r\n";
+        out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * One CRLF (or bare LF) terminated line as ISO-8859-1, or null at end of stream before any byte was read.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int end = sb.length();
+                if (end > 0 && sb.charAt(end - 1) == '\r') {
+                    sb.setLength(end - 1);
+                }
+                return sb.toString();
+            }
+            if (sb.length() > MAX_HEADER_BYTES) {
+                throw new IOException("Line too long");
+            }
+            sb.append((char) c);
+        }
+        if (sb.length() == 0) {
+            return null;
+        }
+        throw new EOFException("Unexpected end of stream");
+    }
+
+    private static String requireLine(InputStream in) throws IOException {
+        String line = readLine(in);
+        if (line == null) {
+            throw new EOFException("Unexpected end of stream");
+        }
+        return line;
+    }
+
+    /**
+     * A request that can't be read, answered with {@code status} before the connection is closed.
+     */
+    private static final class BadRequestException extends IOException
+    {
+        private final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static String argument(String[] args, int i) {
+        if (i >= args.length) {
+            usage("missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static void usage(String problem) {
+        System.err.println("SigningProxy: " + problem);
+        System.err.println("usage: SigningProxy --kid KID --key PEM_FILE [--port N] [--bind ADDRESS] [--upstream URL] "
+                + "[--sign-header NAME]... [--preserve-idempotency-key] [--presign]");
+        System.exit(2);
+    }
+}
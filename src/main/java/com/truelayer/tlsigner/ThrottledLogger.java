@@ -0,0 +1,73 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.logging.Logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate-limited error logging for the request path.
+ *
+ * The first occurrence of a message in a window is logged straight away; repeats are only counted and reported as a
+ * single summary line when the window closes, e.g. "skipping signing ... (x12,400 in last 10s)". A message that stays
+ * quiet for a whole window is forgotten, so its next occurrence is logged immediately again.
+ */
+final class ThrottledLogger
+{
+    private final Logging logging;
+    private final long windowSeconds;
+    private final Map<String, LongAdder> repeats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    ThrottledLogger(Logging logging, long windowSeconds) {
+        this.logging = logging;
+        this.windowSeconds = windowSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tl-signer-log");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::flush, windowSeconds, windowSeconds, TimeUnit.SECONDS);
+    }
+
+    void error(String message) {
+        LongAdder count = repeats.get(message);
+        if (count == null) {
+            count = repeats.putIfAbsent(message, new LongAdder());
+            if (count == null) {
+                logging.logToError(message);
+                return;
+            }
+        }
+        count.increment();
+    }
+
+    void error(String message, Throwable t) {
+        String detail = t.getMessage();
+        error(message + t.getClass().getSimpleName() + (detail != null ? ": " + detail : ""));
+    }
+
+    /**
+     * Report repeat counts for the window that just closed. An increment racing the removal of a quiet message can be
+     * lost; that is an acceptable price for keeping the request path free of locks.
+     */
+    void flush() {
+        for (Map.Entry<String, LongAdder> entry : repeats.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                logging.logToError(String.format("%s (x%,d in last %ds)", entry.getKey(), count, windowSeconds));
+            } else {
+                repeats.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    void close() {
+        scheduler.shutdownNow();
+        flush();
+    }
+}
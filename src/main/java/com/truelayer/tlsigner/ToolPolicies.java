@@ -0,0 +1,66 @@
+package com.truelayer.tlsigner;
+
+import burp.api.montoya.core.ToolSource;
+import burp.api.montoya.core.ToolType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable per-{@link ToolType} policy table. Tools without an explicit entry are signed.
+ *
+ * Persisted as a comma separated list of TOOL=POLICY pairs, e.g. "SCANNER=PASS_THROUGH,INTRUDER=SIGN_CACHED".
+ */
+final class ToolPolicies
+{
+    static final ToolPolicies DEFAULT = new ToolPolicies(new ToolPolicy[ToolType.values().length]);
+
+    // Indexed by ToolType.ordinal(); null means SIGN
+    private final ToolPolicy[] policies;
+
+    private ToolPolicies(ToolPolicy[] policies) {
+        this.policies = policies;
+    }
+
+    static ToolPolicies of(Map<ToolType, ToolPolicy> policies) {
+        ToolPolicy[] table = new ToolPolicy[ToolType.values().length];
+        for (Map.Entry<ToolType, ToolPolicy> entry : policies.entrySet()) {
+            table[entry.getKey().ordinal()] = entry.getValue();
+        }
+        return new ToolPolicies(table);
+    }
+
+    static ToolPolicies parse(String value) {
+        Map<ToolType, ToolPolicy> policies = new EnumMap<>(ToolType.class);
+        for (String pair : Lists.split(value)) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid tool policy: " + pair);
+            }
+            policies.put(ToolType.valueOf(pair.substring(0, eq).trim()), ToolPolicy.valueOf(pair.substring(eq + 1).trim()));
+        }
+        return of(policies);
+    }
+
+    ToolPolicy policyFor(ToolType toolType) {
+        ToolPolicy policy = toolType != null ? policies[toolType.ordinal()] : null;
+        return policy != null ? policy : ToolPolicy.SIGN;
+    }
+
+    ToolPolicy policyFor(ToolSource toolSource) {
+        return toolSource != null ? policyFor(toolSource.toolType()) : ToolPolicy.SIGN;
+    }
+
+    String format() {
+        StringBuilder sb = new StringBuilder();
+        ToolType[] toolTypes = ToolType.values();
+        for (int i = 0; i < policies.length; i++) {
+            if (policies[i] == null || policies[i] == ToolPolicy.SIGN) {
+                continue;
+            }
+            if (sb.length() > 0) sb.append(',');
+            sb.append(toolTypes[i].name()).append('=').append(policies[i].name());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.truelayer.tlsigner;
+
+/**
+ * What the extension does with a request coming from a given Burp tool.
+ */
+enum ToolPolicy
+{
+    /** Sign every request with a fresh Idempotency-Key. */
+    SIGN("Sign"),
+    /** Leave the request untouched. */
+    PASS_THROUGH("Pass through"),
+    /**
+     * Reuse the last Idempotency-Key and Tl-Signature the tool produced when method, path and body are unchanged,
+     * otherwise sign as normal. Cheaper for tools that resend the same request, at the cost of a repeated key.
+     */
+    SIGN_CACHED("Sign (reuse cached signature)");
+
+    private final String label;
+
+    ToolPolicy(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,83 @@
+package com.truelayer.tlsigner;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Reloads triggered by changes next to the properties file and in a separate key directory.
+ */
+class KeyFileWatcherTest
+{
+    private final BlockingQueue<KeyRotation> reloads = new ArrayBlockingQueue<>(16);
+    private Path root;
+    private Map<String, ECPrivateKey> keys;
+    private KeyFileWatcher watcher;
+
+    @BeforeEach
+    void files() throws Exception {
+        root = Files.createTempDirectory("tl-signer-keys");
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp521r1"));
+        // the PEM text is just a name here: the loader hands out pre-generated keys
+        keys = Map.of("first", (ECPrivateKey) generator.generateKeyPair().getPrivate(),
+                "second", (ECPrivateKey) generator.generateKeyPair().getPrivate());
+        Files.createDirectories(root.resolve("config"));
+        Files.createDirectories(root.resolve("secrets"));
+        Files.writeString(root.resolve("secrets/current.pem"), "first");
+        Files.writeString(root.resolve("config/keys.properties"), "kid=kid-1\nkey=../secrets/current.pem\n");
+        // no logger: it is only used for reloads that fail, and the Montoya API isn't on the test classpath
+        watcher = new KeyFileWatcher(root.resolve("config/keys.properties"), pem -> keys.get(pem.trim()), null);
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        watcher.close();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    void reloadsWhenAKeyOutsideThePropertiesDirectoryChanges() throws Exception {
+        assertSame(keys.get("first"), watcher.load().current().privateKey());
+        watcher.start(reloads::add);
+
+        Files.writeString(root.resolve("secrets/current.pem"), "second");
+
+        KeyRotation reloaded = reloads.poll(30, TimeUnit.SECONDS);
+        assertNotNull(reloaded, "no reload after the key file changed");
+        assertSame(keys.get("second"), reloaded.current().privateKey());
+    }
+
+    @Test
+    void reloadsWhenThePropertiesFileChanges() throws Exception {
+        watcher.load();
+        watcher.start(reloads::add);
+
+        Files.writeString(root.resolve("config/keys.properties"), "kid=kid-2\nkey=../secrets/current.pem\n");
+
+        KeyRotation reloaded = reloads.poll(30, TimeUnit.SECONDS);
+        assertNotNull(reloaded, "no reload after the properties file changed");
+        assertEquals("kid-2", reloaded.current().kid());
+    }
+}
@@ -0,0 +1,102 @@
+package com.truelayer.tlsigner;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The signature memo: what counts as the same signing input, expiry and clearing.
+ */
+class SignatureCacheTest
+{
+    private static final byte[] BODY = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+
+    private static SignatureCache.Key key() {
+        return SignatureCache.key("kid", "POST", "/v3/payments", "idem", new String[]{"abc"}, BODY);
+    }
+
+    @Test
+    void identicalInputHits() {
+        SignatureCache cache = new SignatureCache(100, 60);
+        cache.put(key(), "sig");
+
+        assertEquals("sig", cache.get(key()));
+    }
+
+    @Test
+    void anyChangedInputMisses() {
+        SignatureCache cache = new SignatureCache(100, 60);
+        cache.put(key(), "sig");
+
+        assertNull(cache.get(SignatureCache.key("kid-2", "POST", "/v3/payments", "idem", new String[]{"abc"}, BODY)));
+        assertNull(cache.get(SignatureCache.key("kid", "PUT", "/v3/payments", "idem", new String[]{"abc"}, BODY)));
+        assertNull(cache.get(SignatureCache.key("kid", "POST", "/v3/payouts", "idem", new String[]{"abc"}, BODY)));
+        assertNull(cache.get(SignatureCache.key("kid", "POST", "/v3/payments", "idem-2", new String[]{"abc"}, BODY)));
+        assertNull(cache.get(SignatureCache.key("kid", "POST", "/v3/payments", "idem", new String[]{"abd"}, BODY)));
+        assertNull(cache.get(SignatureCache.key("kid", "POST", "/v3/payments", "idem", new String[]{"abc"},
+                "{\"a\":2}".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void fieldBoundariesCannotShift() {
+        assertNotEquals(SignatureCache.key("kid", "POST", "/p", "idem", new String[]{"ab", "c"}, BODY),
+                SignatureCache.key("kid", "POST", "/p", "idem", new String[]{"a", "bc"}, BODY));
+        assertNotEquals(SignatureCache.key("kid", "POST", "/p", "ab", new String[0], BODY),
+                SignatureCache.key("kid", "POST", "/pa", "b", new String[0], BODY));
+    }
+
+    @Test
+    void missingHeaderIsNotAnEmptyOne() {
+        // valuesFrom gives null for a configured signed header the request doesn't have
+        SignatureCache.Key missing = SignatureCache.key("kid", "POST", "/p", "idem", new String[]{null}, new byte[0]);
+        SignatureCache.Key empty = SignatureCache.key("kid", "POST", "/p", "idem", new String[]{""}, new byte[0]);
+
+        assertNotEquals(missing, empty);
+        assertEquals(missing, SignatureCache.key("kid", "POST", "/p", "idem", new String[]{null}, new byte[0]));
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws Exception {
+        SignatureCache cache = new SignatureCache(100, 1);
+        cache.put(key(), "sig");
+
+        Thread.sleep(1100);
+
+        assertNull(cache.get(key()));
+    }
+
+    @Test
+    void clearDropsEverything() {
+        // what installKeys does when keys are saved or a key file is reloaded, possibly with the same kid
+        SignatureCache cache = new SignatureCache(100, 60);
+        cache.put(key(), "sig");
+        SignatureCache.Key other = SignatureCache.key("kid", "GET", "/v3/payments", "idem", new String[]{null}, new byte[0]);
+        cache.put(other, "sig-2");
+
+        cache.clear();
+
+        assertNull(cache.get(key()));
+        assertNull(cache.get(other));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() {
+        // 16 segments of one entry each
+        SignatureCache cache = new SignatureCache(16, 60);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(SignatureCache.key("kid", "POST", "/p/" + i, "idem", new String[0], BODY), "sig-" + i);
+        }
+        int kept = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.get(SignatureCache.key("kid", "POST", "/p/" + i, "idem", new String[0], BODY)) != null) {
+                kept++;
+            }
+        }
+        assertTrue(kept <= 16, kept + " entries kept");
+    }
+}
@@ -0,0 +1,38 @@
+package com.truelayer.tlsigner;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Public key derivation, which leans on how the JDK's EC key pair generator reads its randomness.
+ */
+class SigningContextTest
+{
+    static Stream<Arguments> curves() {
+        return Stream.of(Arguments.of("secp256r1"), Arguments.of("secp384r1"), Arguments.of("secp521r1"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("curves")
+    void derivedPublicKeyMatchesTheGeneratedOne(String curve) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curve));
+        for (int i = 0; i < 16; i++) {
+            KeyPair keyPair = generator.generateKeyPair();
+
+            ECPublicKey derived = SigningContext.derivePublicKey((ECPrivateKey) keyPair.getPrivate());
+
+            assertEquals(((ECPublicKey) keyPair.getPublic()).getW(), derived.getW());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.truelayer.tlsigner;
+
+import com.truelayer.signing.SignatureException;
+import com.truelayer.signing.Verifier;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The built-in signing engines checked against the truelayer-signing library's Verifier, which stays the reference
+ * implementation of the Tl-Signature format.
+ */
+class SigningOracleTest
+{
+    private static final String KID = "45fc75cf-5649-4134-84b3-192c2c78e990";
+    private static final String METHOD = "POST";
+    private static final String PATH = "/v3/payments";
+    private static final String[] NAMES = {RequestSigner.IDEMPOTENCY_KEY};
+    private static final String[] VALUES = {"idemp-2076717c-9005-4811-a321-9e0787fa0382"};
+    // DetachedJws base64url-encodes the payload through an 8 KB output buffer
+    private static final int ENCODER_BUFFER = 8192;
+
+    private static ECPublicKey publicKey;
+    private static SigningContext context;
+    private static PresigningEcdsa presigner;
+
+    @BeforeAll
+    static void keys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp521r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        publicKey = (ECPublicKey) keyPair.getPublic();
+        context = SigningContext.create(KID, (ECPrivateKey) keyPair.getPrivate());
+        presigner = new PresigningEcdsa(context, 64);
+        presigner.start();
+    }
+
+    @AfterAll
+    static void stopPresigner() {
+        presigner.stop();
+    }
+
+    static Stream<Arguments> bodies() {
+        return Stream.of(
+                Arguments.of("empty", new byte[0]),
+                Arguments.of("json", "{\"amount_in_minor\":100,\"currency\":\"GBP\"}".getBytes(StandardCharsets.UTF_8)),
+                Arguments.of("body one under the buffer", ascii(ENCODER_BUFFER - 1)),
+                Arguments.of("body exactly the buffer", ascii(ENCODER_BUFFER)),
+                Arguments.of("body one over the buffer", ascii(ENCODER_BUFFER + 1)),
+                Arguments.of("several buffers", ascii(3 * ENCODER_BUFFER + 2)),
+                Arguments.of("non-ASCII UTF-8", "{\"reference\":\"café £10 ünïcödé 支払い 🚀\"}".getBytes(StandardCharsets.UTF_8)),
+                Arguments.of("not UTF-8", new byte[]{(byte) 0xff, (byte) 0xfe, 0x00, (byte) 0xc3, 0x28, (byte) 0x80, '\n'}),
+                Arguments.of("every byte value", everyByte()));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("bodies")
+    void signingContextSignatureVerifies(String name, byte[] body) throws Exception {
+        verify(NAMES, VALUES, body, context.sign(METHOD, PATH, NAMES, VALUES, body));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("bodies")
+    void presignedSignatureVerifies(String name, byte[] body) throws Exception {
+        verify(NAMES, VALUES, body, presign(NAMES, VALUES, body));
+    }
+
+    @Test
+    void everyOffsetAcrossTheBufferBoundaryVerifies() throws Exception {
+        // the encoded payload fills the buffer at 6144 payload bytes, which the method, path and headers shift, so
+        // walk every body length around it
+        for (int length = ENCODER_BUFFER / 4 * 3 - 80; length <= ENCODER_BUFFER / 4 * 3 + 8; length++) {
+            byte[] body = ascii(length);
+            verify(NAMES, VALUES, body, context.sign(METHOD, PATH, NAMES, VALUES, body));
+        }
+    }
+
+    @Test
+    void extraSignedHeadersVerify() throws Exception {
+        String[] names = {RequestSigner.IDEMPOTENCY_KEY, "X-Bar-Header", "Content-Type"};
+        String[] values = {VALUES[0], "abc", "application/json; charset=utf-8"};
+        byte[] body = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+
+        verify(names, values, body, context.sign(METHOD, PATH, names, values, body));
+        verify(names, values, body, presign(names, values, body));
+    }
+
+    @Test
+    void preservedIdempotencyKeyIsSignedAsSent() throws Exception {
+        RequestSigner requestSigner = new RequestSigner(SignedHeaders.parse("X-Bar-Header"), true, false);
+        byte[] body = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        String existing = "caller-supplied-key";
+
+        RequestSigner.Signed builtIn = requestSigner.sign(context, null, METHOD, PATH, existing, new String[]{"abc"}, body);
+        assertEquals(existing, builtIn.idempotencyKey());
+        assertFalse(builtIn.presigned());
+        verify(new String[]{RequestSigner.IDEMPOTENCY_KEY, "X-Bar-Header"}, new String[]{existing, "abc"}, body,
+                builtIn.tlSignature());
+
+        RequestSigner.Signed presigned = signWithPresigner(requestSigner, existing, new String[]{null}, body);
+        assertEquals(existing, presigned.idempotencyKey());
+        verify(new String[]{RequestSigner.IDEMPOTENCY_KEY}, new String[]{existing}, body, presigned.tlSignature());
+    }
+
+    @Test
+    void replacedIdempotencyKeyIsFreshAndSigned() throws Exception {
+        RequestSigner requestSigner = new RequestSigner(SignedHeaders.NONE, false, false);
+        byte[] body = new byte[0];
+
+        RequestSigner.Signed signed = requestSigner.sign(context, null, METHOD, PATH, "caller-supplied-key", new String[0], body);
+        assertNotEquals("caller-supplied-key", signed.idempotencyKey());
+        verify(NAMES, new String[]{signed.idempotencyKey()}, body, signed.tlSignature());
+    }
+
+    @Test
+    void derivedPublicKeyMatchesTheKeyPair() throws Exception {
+        assertEquals(publicKey.getW(), context.publicKey().getW());
+    }
+
+    @Test
+    void tamperedBodyDoesNotVerify() throws Exception {
+        byte[] body = ascii(ENCODER_BUFFER + 1);
+        String tlSignature = context.sign(METHOD, PATH, NAMES, VALUES, body);
+        byte[] tampered = Arrays.copyOf(body, body.length);
+        tampered[ENCODER_BUFFER] ^= 1;
+
+        assertThrows(SignatureException.class, () -> verify(NAMES, VALUES, tampered, tlSignature));
+    }
+
+    private static void verify(String[] names, String[] values, byte[] body, String tlSignature) {
+        Verifier verifier = Verifier.from(publicKey).method(METHOD).path(PATH).body(body);
+        for (int i = 0; i < names.length; i++) {
+            verifier = verifier.header(names[i], values[i]);
+        }
+        verifier.verify(tlSignature);
+    }
+
+    private static String presign(String[] names, String[] values, byte[] body) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        String tlSignature;
+        // the pool fills in the background and signRequest returns null while it is empty
+        while ((tlSignature = presigner.signRequest(METHOD, PATH, names, values, body)) == null) {
+            assertTrue(System.nanoTime() < deadline, "presignature pool never filled");
+            Thread.sleep(10);
+        }
+        return tlSignature;
+    }
+
+    private static RequestSigner.Signed signWithPresigner(RequestSigner requestSigner, String existing,
+                                                          String[] extraValues, byte[] body) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (true) {
+            RequestSigner.Signed signed = requestSigner.sign(context, presigner, METHOD, PATH, existing, extraValues, body);
+            if (signed.presigned()) {
+                return signed;
+            }
+            assertTrue(System.nanoTime() < deadline, "presignature pool never filled");
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] ascii(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        return body;
+    }
+
+    private static byte[] everyByte() {
+        byte[] body = new byte[256 * 33];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        return body;
+    }
+}
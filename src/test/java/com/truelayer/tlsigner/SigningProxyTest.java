@@ -0,0 +1,179 @@
+package com.truelayer.tlsigner;
+
+import com.sun.net.httpserver.HttpServer;
+import com.truelayer.signing.Verifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end through SigningProxy to a stub upstream, checking what actually arrives upstream with the library Verifier.
+ */
+class SigningProxyTest
+{
+    private record Forwarded(String method, String path, String idempotencyKey, String barHeader, String tlSignature, byte[] body)
+    {
+    }
+
+    private final BlockingQueue<Forwarded> forwarded = new ArrayBlockingQueue<>(16);
+    private ECPublicKey publicKey;
+    private HttpServer upstream;
+    private ServerSocket proxySocket;
+    private SigningProxy proxy;
+
+    @BeforeEach
+    void start() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp521r1"));
+        KeyPair keyPair = generator.generateKeyPair();
+        publicKey = (ECPublicKey) keyPair.getPublic();
+        SigningContext context = SigningContext.create("kid-1", (ECPrivateKey) keyPair.getPrivate());
+
+        upstream = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        upstream.createContext("/", exchange -> {
+            URI uri = exchange.getRequestURI();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            forwarded.add(new Forwarded(exchange.getRequestMethod(),
+                    uri.getRawQuery() != null ? uri.getRawPath() + "?" + uri.getRawQuery() : uri.getRawPath(),
+                    exchange.getRequestHeaders().getFirst(RequestSigner.IDEMPOTENCY_KEY),
+                    exchange.getRequestHeaders().getFirst("X-Bar-Header"),
+                    exchange.getRequestHeaders().getFirst(RequestSigner.TL_SIGNATURE), body));
+            byte[] response = "{\"id\":\"p-1\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(201, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        upstream.start();
+
+        RequestSigner signer = new RequestSigner(SignedHeaders.parse("X-Bar-Header"), false, false);
+        URI upstreamUri = URI.create("http://127.0.0.1:" + upstream.getAddress().getPort());
+        proxy = new SigningProxy(context, signer, null, upstreamUri);
+        proxySocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread serving = new Thread(() -> {
+            try {
+                proxy.serve(proxySocket);
+            } catch (IOException ignored) {
+                // the socket is closed after each test
+            }
+        }, "signing-proxy-test");
+        serving.setDaemon(true);
+        serving.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        proxySocket.close();
+        upstream.stop(0);
+    }
+
+    @Test
+    void forwardsRequestsWithAVerifiableSignature() throws Exception {
+        byte[] body = "{\"amount_in_minor\":100,\"reference\":\"café\"}".getBytes(StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + proxySocket.getLocalPort() + "/v3/payments?x=1"))
+                .header("X-Bar-Header", "abc")
+                .header(RequestSigner.IDEMPOTENCY_KEY, "replaced-by-the-proxy")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(201, response.statusCode());
+        assertEquals("{\"id\":\"p-1\"}", response.body());
+        Forwarded received = forwarded.poll(10, TimeUnit.SECONDS);
+        assertNotNull(received);
+        assertEquals("/v3/payments?x=1", received.path());
+        assertNotEquals("replaced-by-the-proxy", received.idempotencyKey());
+        verify(received);
+        assertEquals(1, proxy.signedCount());
+        assertEquals(0, proxy.failedCount());
+    }
+
+    @Test
+    void forwardsChunkedBodies() throws Exception {
+        String response = exchange("POST /v3/payments HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"
+                + "5\r\n{\"a\":\r\n3;ext=1\r\n12}\r\n0\r\n\r\n");
+
+        assertTrue(response.startsWith("HTTP/1.1 201 "), response);
+        Forwarded received = forwarded.poll(10, TimeUnit.SECONDS);
+        assertNotNull(received);
+        assertEquals("{\"a\":12}", new String(received.body(), StandardCharsets.UTF_8));
+        verify(received);
+    }
+
+    @Test
+    void rejectsInvalidBodyLengths() throws Exception {
+        assertStatus(400, "POST /v3/payments HTTP/1.1\r\nHost: x\r\nContent-Length: -1\r\n\r\n");
+        assertStatus(400, "POST /v3/payments HTTP/1.1\r\nHost: x\r\nContent-Length: ten\r\n\r\n");
+        assertStatus(400, "POST /v3/payments HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n-5\r\n");
+        assertStatus(400, "POST /v3/payments HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n");
+        assertStatus(413, "POST /v3/payments HTTP/1.1\r\nHost: x\r\nContent-Length: 99999999999\r\n\r\n");
+        assertStatus(413, "POST /v3/payments HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n7fffffff\r\n");
+        assertEquals(0, proxy.signedCount());
+        assertTrue(forwarded.isEmpty());
+    }
+
+    @Test
+    void countsUpstreamFailures() throws Exception {
+        upstream.stop(0);
+
+        assertStatus(502, "GET /v3/payments HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n");
+        assertEquals(1, proxy.signedCount());
+        assertEquals(1, proxy.failedCount());
+    }
+
+    private void verify(Forwarded received) {
+        Verifier verifier = Verifier.from(publicKey)
+                .method(received.method())
+                .path(received.path())
+                .header(RequestSigner.IDEMPOTENCY_KEY, received.idempotencyKey())
+                .body(received.body());
+        if (received.barHeader() != null) {
+            verifier = verifier.header("X-Bar-Header", received.barHeader());
+        }
+        verifier.verify(received.tlSignature());
+    }
+
+    private void assertStatus(int status, String request) throws IOException {
+        String response = exchange(request);
+        assertTrue(response.startsWith("HTTP/1.1 " + status + " "), response);
+    }
+
+    /**
+     * Send raw bytes to the proxy and read until it closes the connection.
+     */
+    private String exchange(String request) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxySocket.getLocalPort())) {
+            socket.setSoTimeout(10_000);
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().flush();
+            InputStream in = socket.getInputStream();
+            return new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}